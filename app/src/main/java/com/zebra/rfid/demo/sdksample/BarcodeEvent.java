@@ -0,0 +1,39 @@
+package com.zebra.rfid.demo.sdksample;
+
+/**
+ * A decoded barcode from either DataWedge or the scanner SDK.
+ * Instances are pooled by {@link BarcodeStream}; listeners must copy any field
+ * they need after the callback returns.
+ */
+class BarcodeEvent {
+
+    enum Source { DATAWEDGE, SCANNER_SDK }
+
+    Source source;
+    /** Decoded data as text. */
+    String data;
+    /** Raw decoded bytes, or null if the source did not provide them. */
+    byte[] rawData;
+    /** Symbology name as reported by DataWedge (e.g. LABEL-TYPE-EAN13), or null. */
+    String symbology;
+    /** Numeric symbology id as reported by the scanner SDK, or -1. */
+    int symbologyId;
+    /** Input that produced the scan (DataWedge source such as "scanner"), or null. */
+    String inputSource;
+    long timestampMs;
+
+    void set(Source source, String data, byte[] rawData, String symbology, int symbologyId,
+             String inputSource, long timestampMs) {
+        this.source = source;
+        this.data = data;
+        this.rawData = rawData;
+        this.symbology = symbology;
+        this.symbologyId = symbologyId;
+        this.inputSource = inputSource;
+        this.timestampMs = timestampMs;
+    }
+
+    void clear() {
+        set(null, null, null, null, -1, null, 0);
+    }
+}
@@ -0,0 +1,159 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single barcode stream merging DataWedge intents and scanner SDK events.
+ * Publishers on any thread append pooled {@link BarcodeEvent}s; bursts are
+ * delivered to the listener on the main thread as one batch per window,
+ * so continuous-scan mode costs one main-thread post per window instead of one per code.
+ */
+class BarcodeStream {
+
+    /** Delivery window; roughly two frames so a burst is rendered once. */
+    private static final long BATCH_WINDOW_MS = 32;
+    private static final int MAX_POOL_SIZE = 64;
+
+    interface Listener {
+        /**
+         * Called on the main thread with the events published since the last batch.
+         * Events are recycled once this returns and must not be retained.
+         */
+        void onBarcodes(List<BarcodeEvent> batch);
+    }
+
+    /** Counts events for one source over one-second buckets. Thread-safe. */
+    static final class RateCounter {
+        private long total;
+        private long bucketStartMs;
+        private int bucketCount;
+        private int lastRate;
+
+        synchronized void add(long nowMs) {
+            total++;
+            roll(nowMs);
+            bucketCount++;
+        }
+
+        synchronized long getTotal() {
+            return total;
+        }
+
+        /**
+         * @param nowMs Current {@link SystemClock#elapsedRealtime()}.
+         * @return Events counted in the last complete second; zero once events have stopped for a second.
+         */
+        synchronized int getRatePerSecond(long nowMs) {
+            roll(nowMs);
+            return lastRate;
+        }
+
+        /** Closes the current bucket if a second has passed; a gap of more than a bucket means no events. */
+        private void roll(long nowMs) {
+            long elapsed = nowMs - bucketStartMs;
+            if (elapsed >= 1000) {
+                lastRate = elapsed < 2000 ? bucketCount : 0;
+                bucketStartMs = elapsed < 2000 ? bucketStartMs + 1000 : nowMs;
+                bucketCount = 0;
+            }
+        }
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<BarcodeEvent> pool = new ArrayDeque<>();
+    private ArrayList<BarcodeEvent> pending = new ArrayList<>();
+    private ArrayList<BarcodeEvent> delivering = new ArrayList<>();
+    private final RateCounter[] rates = new RateCounter[BarcodeEvent.Source.values().length];
+    private boolean flushScheduled;
+    private volatile Listener listener;
+
+    private final Runnable flushRunnable = this::flush;
+
+    BarcodeStream() {
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] = new RateCounter();
+        }
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Publishes a barcode. Safe to call from any thread.
+     */
+    void publish(BarcodeEvent.Source source, String data, byte[] rawData, String symbology,
+                 int symbologyId, String inputSource) {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (this) {
+            BarcodeEvent event = pool.poll();
+            if (event == null) event = new BarcodeEvent();
+            event.set(source, data, rawData, symbology, symbologyId, inputSource, now);
+            pending.add(event);
+            rates[source.ordinal()].add(now);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                mainHandler.postDelayed(flushRunnable, BATCH_WINDOW_MS);
+            }
+        }
+    }
+
+    /** @return Rate counter for the given source; read from any thread for display. */
+    RateCounter getRate(BarcodeEvent.Source source) {
+        return rates[source.ordinal()];
+    }
+
+    /** @return Barcodes per second over the last complete second, summed over all sources. */
+    int getRatePerSecond() {
+        long now = SystemClock.elapsedRealtime();
+        int rate = 0;
+        for (RateCounter counter : rates) {
+            rate += counter.getRatePerSecond(now);
+        }
+        return rate;
+    }
+
+    /** Drops any undelivered events. */
+    void clear() {
+        mainHandler.removeCallbacks(flushRunnable);
+        synchronized (this) {
+            recycle(pending);
+            flushScheduled = false;
+        }
+    }
+
+    private void flush() {
+        ArrayList<BarcodeEvent> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = delivering;
+            delivering = batch;
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) return;
+        Listener l = listener;
+        try {
+            if (l != null) l.onBarcodes(batch);
+        } finally {
+            synchronized (this) {
+                recycle(batch);
+            }
+        }
+    }
+
+    /** Must be called with the lock held. */
+    private void recycle(List<BarcodeEvent> events) {
+        for (BarcodeEvent event : events) {
+            if (pool.size() >= MAX_POOL_SIZE) break;
+            event.clear();
+            pool.add(event);
+        }
+        events.clear();
+    }
+}
@@ -0,0 +1,369 @@
+package com.zebra.rfid.demo.sdksample;
+
+import com.zebra.rfid.api3.TagData;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming movement-direction detection for dock-door portals.
+ * Each antenna is assigned to the OUTSIDE or INSIDE zone. Every tag in the field gets a
+ * slot with a fixed-size ring of its latest reads (time, antenna, RSSI) held in primitive
+ * arrays shared by all slots. When a tag's reads switch zone, the RSSI-weighted mean read
+ * time of each zone within the window is compared: outside-then-inside is IN, the reverse
+ * is OUT. A tag present longer than the stationary time without a direction is STATIONARY.
+ *
+ * <p>Slots sit on a list ordered by last read, so {@link #advance(long)} expires idle tags
+ * from its head without scanning, and a second list in first-seen order finds stationary
+ * tags the same way. The number of slots is fixed, so memory is bounded; when all are in
+ * use the least recently read tag is finalized early. Methods synchronize on the engine, so
+ * batches and periodic {@link #advance(long)} calls may come from different threads.
+ */
+class DirectionEngine {
+
+    enum Direction { IN, OUT, STATIONARY }
+
+    static final byte ZONE_NONE = 0;
+    static final byte ZONE_OUTSIDE = 1;
+    static final byte ZONE_INSIDE = 2;
+
+    private static final int NIL = -1;
+    private static final int MAX_ANTENNAS = 256;
+    private static final byte FLAG_DIRECTION = 1;
+    private static final byte FLAG_STATIONARY = 2;
+
+    /** Receives events on the thread that fed the engine. */
+    interface Listener {
+        void onDirection(String epc, Direction direction, long timeMs, int reads);
+    }
+
+    /** Portal configuration. */
+    static final class Rules {
+        final byte[] zoneByAntenna = new byte[MAX_ANTENNAS];
+        /** Only reads this recent, relative to the tag's last read, are evaluated. */
+        long windowMs = 5000;
+        /** Reads needed in each zone before a direction is decided. */
+        int minReadsPerZone = 2;
+        /** Minimum gap between the zones' mean read times; rejects crossfire between antennas. */
+        long minTransitMs = 150;
+        /** A tag not read for this long has left the field. */
+        long idleTimeoutMs = 2000;
+        /** Presence without a direction after which a tag is reported STATIONARY. */
+        long stationaryMs = 30000;
+        /** Reads weaker than this are ignored. */
+        int rssiFloor = -90;
+
+        /**
+         * @param antennaId Antenna id as reported by the reader (1-based).
+         * @param zone {@link #ZONE_OUTSIDE}, {@link #ZONE_INSIDE} or {@link #ZONE_NONE}.
+         */
+        Rules setZone(int antennaId, byte zone) {
+            zoneByAntenna[antennaId & (MAX_ANTENNAS - 1)] = zone;
+            return this;
+        }
+    }
+
+    /** Point-in-time engine metrics. */
+    static final class Stats {
+        final int trackedTags;
+        final int capacity;
+        final long events;
+        final long evictions;
+        final long memoryBytes;
+
+        Stats(int trackedTags, int capacity, long events, long evictions, long memoryBytes) {
+            this.trackedTags = trackedTags;
+            this.capacity = capacity;
+            this.events = events;
+            this.evictions = evictions;
+            this.memoryBytes = memoryBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "tracked=" + trackedTags + "/" + capacity + " events=" + events
+                    + " evictions=" + evictions + " memory=" + memoryBytes / 1024 + " KB";
+        }
+    }
+
+    private final Rules rules;
+    private final Listener listener;
+    private final int capacity;
+    private final int ringSize;
+    private final int ringMask;
+
+    // Read rings, slot * ringSize + position
+    private final long[] readTime;
+    private final byte[] readAntenna;
+    private final short[] readRssi;
+
+    // Per slot
+    private final String[] epcBySlot;
+    private final int[] ringHead;
+    private final int[] ringCount;
+    private final long[] firstSeen;
+    private final long[] lastSeen;
+    private final byte[] lastZone;
+    private final byte[] flags;
+    private final int[] lruPrev;
+    private final int[] lruNext;
+    private final int[] agePrev;
+    private final int[] ageNext;
+    private final boolean[] onAgeList;
+
+    private final Map<String, Integer> slotByEpc;
+    private int lruHead = NIL;
+    private int lruTail = NIL;
+    private int ageHead = NIL;
+    private int ageTail = NIL;
+    /** Free slots, chained through {@link #lruNext}. */
+    private int freeHead;
+    private int tracked;
+    private long events;
+    private long evictions;
+
+    /**
+     * @param rules Portal configuration; read on every evaluation, so changes apply immediately.
+     * @param capacity Maximum number of tags tracked at once.
+     * @param ringSize Reads kept per tag; rounded up to a power of two.
+     * @param listener Receives direction events.
+     */
+    DirectionEngine(Rules rules, int capacity, int ringSize, Listener listener) {
+        this.rules = rules;
+        this.listener = listener;
+        this.capacity = capacity;
+        this.ringSize = Integer.highestOneBit(Math.max(2, ringSize) - 1) << 1;
+        this.ringMask = this.ringSize - 1;
+        readTime = new long[capacity * this.ringSize];
+        readAntenna = new byte[capacity * this.ringSize];
+        readRssi = new short[capacity * this.ringSize];
+        epcBySlot = new String[capacity];
+        ringHead = new int[capacity];
+        ringCount = new int[capacity];
+        firstSeen = new long[capacity];
+        lastSeen = new long[capacity];
+        lastZone = new byte[capacity];
+        flags = new byte[capacity];
+        lruPrev = new int[capacity];
+        lruNext = new int[capacity];
+        agePrev = new int[capacity];
+        ageNext = new int[capacity];
+        onAgeList = new boolean[capacity];
+        slotByEpc = new HashMap<>(capacity * 2);
+        for (int i = 0; i < capacity; i++) {
+            lruNext[i] = i + 1 < capacity ? i + 1 : NIL;
+        }
+        freeHead = 0;
+    }
+
+    /**
+     * Feeds a batch of reads.
+     * @param tags Tag reads from the reader.
+     * @param nowMs Arrival time of the batch.
+     */
+    synchronized void onBatch(TagData[] tags, long nowMs) {
+        for (TagData tag : tags) {
+            if (tag == null || tag.getTagID() == null) continue;
+            onRead(tag.getTagID(), tag.getAntennaID(), tag.getPeakRSSI(), nowMs);
+        }
+        advance(nowMs);
+    }
+
+    /**
+     * Records one read.
+     * @param epc Tag EPC.
+     * @param antennaId Antenna that read the tag.
+     * @param rssi Peak RSSI of the read.
+     * @param nowMs Time of the read.
+     */
+    synchronized void onRead(String epc, int antennaId, int rssi, long nowMs) {
+        if (rssi < rules.rssiFloor) return;
+        Integer existing = slotByEpc.get(epc);
+        int slot;
+        if (existing == null) {
+            slot = allocate(epc, nowMs);
+        } else {
+            slot = existing;
+            unlinkLru(slot);
+        }
+        linkLruTail(slot);
+        lastSeen[slot] = nowMs;
+
+        int position = (slot * ringSize) + ((ringHead[slot] + ringCount[slot]) & ringMask);
+        if (ringCount[slot] == ringSize) {
+            ringHead[slot] = (ringHead[slot] + 1) & ringMask;
+        } else {
+            ringCount[slot]++;
+        }
+        readTime[position] = nowMs;
+        readAntenna[position] = (byte) antennaId;
+        readRssi[position] = (short) rssi;
+
+        byte zone = rules.zoneByAntenna[antennaId & (MAX_ANTENNAS - 1)];
+        if (zone != ZONE_NONE && zone != lastZone[slot]) {
+            boolean transition = lastZone[slot] != ZONE_NONE;
+            lastZone[slot] = zone;
+            if (transition && (flags[slot] & FLAG_DIRECTION) == 0) {
+                Direction direction = evaluate(slot);
+                if (direction != null) emit(slot, direction, nowMs);
+            }
+        }
+    }
+
+    /**
+     * Expires tags that left the field and reports stationary ones; cost is proportional to
+     * the number of tags affected. Call periodically so silence is noticed.
+     * @param nowMs Current time.
+     */
+    synchronized void advance(long nowMs) {
+        while (lruHead != NIL && nowMs - lastSeen[lruHead] >= rules.idleTimeoutMs) {
+            finish(lruHead, nowMs);
+        }
+        while (ageHead != NIL && nowMs - firstSeen[ageHead] >= rules.stationaryMs) {
+            int slot = ageHead;
+            unlinkAge(slot);
+            if ((flags[slot] & FLAG_DIRECTION) == 0) {
+                emit(slot, Direction.STATIONARY, nowMs);
+                flags[slot] |= FLAG_STATIONARY;
+            }
+        }
+    }
+
+    /** Drops all tracked tags without emitting events. */
+    synchronized void clear() {
+        while (lruHead != NIL) {
+            release(lruHead);
+        }
+    }
+
+    Rules getRules() {
+        return rules;
+    }
+
+    synchronized Stats getStats() {
+        return new Stats(tracked, capacity, events, evictions, memoryBytes());
+    }
+
+    /**
+     * @return Estimated heap used by the engine: the preallocated arrays plus the EPC map entries.
+     */
+    long memoryBytes() {
+        long rings = (long) capacity * ringSize * (8 + 1 + 2);
+        long slots = (long) capacity * (4 + 4 + 4 + 8 + 8 + 1 + 1 + 4 + 4 + 4 + 4 + 1 + 4);
+        // HashMap node, boxed index and the EPC string (24 hex chars) per tracked tag
+        long map = (long) capacity * 2 * 4 + (long) tracked * (32 + 16 + 72);
+        return rings + slots + map;
+    }
+
+    /**
+     * @return The direction shown by the slot's reads within the window, or null if undecided.
+     */
+    private Direction evaluate(int slot) {
+        int base = slot * ringSize;
+        long newest = lastSeen[slot];
+        long origin = firstSeen[slot];
+        int outsideReads = 0;
+        int insideReads = 0;
+        double outsideTime = 0;
+        double outsideWeight = 0;
+        double insideTime = 0;
+        double insideWeight = 0;
+        for (int i = 0; i < ringCount[slot]; i++) {
+            int position = base + ((ringHead[slot] + i) & ringMask);
+            long time = readTime[position];
+            if (newest - time > rules.windowMs) continue;
+            byte zone = rules.zoneByAntenna[readAntenna[position] & (MAX_ANTENNAS - 1)];
+            // Stronger reads count more; the weight is the margin over the floor in dB
+            double weight = Math.max(1, readRssi[position] - rules.rssiFloor);
+            double relative = time - origin;
+            if (zone == ZONE_OUTSIDE) {
+                outsideReads++;
+                outsideTime += relative * weight;
+                outsideWeight += weight;
+            } else if (zone == ZONE_INSIDE) {
+                insideReads++;
+                insideTime += relative * weight;
+                insideWeight += weight;
+            }
+        }
+        if (outsideReads < rules.minReadsPerZone || insideReads < rules.minReadsPerZone) return null;
+        double gap = insideTime / insideWeight - outsideTime / outsideWeight;
+        if (gap >= rules.minTransitMs) return Direction.IN;
+        if (-gap >= rules.minTransitMs) return Direction.OUT;
+        return null;
+    }
+
+    /** Decides a tag that left the field and frees its slot. */
+    private void finish(int slot, long nowMs) {
+        if ((flags[slot] & (FLAG_DIRECTION | FLAG_STATIONARY)) == 0) {
+            Direction direction = evaluate(slot);
+            if (direction != null) emit(slot, direction, nowMs);
+        }
+        release(slot);
+    }
+
+    private void emit(int slot, Direction direction, long nowMs) {
+        if (direction != Direction.STATIONARY) flags[slot] |= FLAG_DIRECTION;
+        events++;
+        if (listener != null) listener.onDirection(epcBySlot[slot], direction, nowMs, ringCount[slot]);
+    }
+
+    private int allocate(String epc, long nowMs) {
+        if (freeHead == NIL) {
+            evictions++;
+            finish(lruHead, nowMs);
+        }
+        int slot = freeHead;
+        freeHead = lruNext[slot];
+        epcBySlot[slot] = epc;
+        slotByEpc.put(epc, slot);
+        ringHead[slot] = 0;
+        ringCount[slot] = 0;
+        firstSeen[slot] = nowMs;
+        lastZone[slot] = ZONE_NONE;
+        flags[slot] = 0;
+        linkAgeTail(slot);
+        tracked++;
+        return slot;
+    }
+
+    private void release(int slot) {
+        unlinkLru(slot);
+        if (onAgeList[slot]) unlinkAge(slot);
+        slotByEpc.remove(epcBySlot[slot]);
+        epcBySlot[slot] = null;
+        lruNext[slot] = freeHead;
+        freeHead = slot;
+        tracked--;
+    }
+
+    private void linkLruTail(int slot) {
+        lruPrev[slot] = lruTail;
+        lruNext[slot] = NIL;
+        if (lruTail != NIL) lruNext[lruTail] = slot; else lruHead = slot;
+        lruTail = slot;
+    }
+
+    private void unlinkLru(int slot) {
+        int prev = lruPrev[slot];
+        int next = lruNext[slot];
+        if (prev != NIL) lruNext[prev] = next; else lruHead = next;
+        if (next != NIL) lruPrev[next] = prev; else lruTail = prev;
+    }
+
+    private void linkAgeTail(int slot) {
+        agePrev[slot] = ageTail;
+        ageNext[slot] = NIL;
+        if (ageTail != NIL) ageNext[ageTail] = slot; else ageHead = slot;
+        ageTail = slot;
+        onAgeList[slot] = true;
+    }
+
+    private void unlinkAge(int slot) {
+        int prev = agePrev[slot];
+        int next = ageNext[slot];
+        if (prev != NIL) ageNext[prev] = next; else ageHead = next;
+        if (next != NIL) agePrev[next] = prev; else ageTail = prev;
+        onAgeList[slot] = false;
+    }
+}
@@ -1,40 +1,46 @@
 package com.zebra.rfid.demo.sdksample;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.util.Log;
+import android.content.SharedPreferences;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
-
-import com.zebra.rfid.api3.TagData;
+import androidx.lifecycle.ViewModelProvider;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Main Activity for the RFID Sample application.
  * This activity handles the UI and user interactions for connecting to a reader,
  * performing inventory, and scanning barcodes.
  */
-public class MainActivity extends AppCompatActivity implements RFIDHandler.ResponseHandlerInterface {
+public class MainActivity extends AppCompatActivity implements ReaderViewModel.Ui {
 
     private static final String TAG = "MainActivity";
     // DataWedge intent actions and extras
@@ -43,42 +49,82 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
     private static final String DW_BARCODE_EXTRA = "com.symbol.datawedge.data_string";
     private static final String DW_STATUS_EXTRA = "com.symbol.datawedge.api.RESULT_GET_STATUS";
     private static final String DW_VERSION_EXTRA = "com.symbol.datawedge.api.RESULT_GET_VERSION_INFO";
+    private static final String DW_LABEL_TYPE_EXTRA = "com.symbol.datawedge.label_type";
+    private static final String DW_SOURCE_EXTRA = "com.symbol.datawedge.source";
+    private static final String DW_DECODE_DATA_EXTRA = "com.symbol.datawedge.decode_data";
+    private static final String SCAN_RESULT_PREFIX = "Scan Result : ";
+    private static final String SCAN_RATE_PREFIX = "  (";
+    private static final String SCAN_RATE_SUFFIX = "/s)";
+    private static final long SCAN_RATE_REFRESH_MS = 1000;
+
+    /** Background thread DataWedge broadcasts are delivered on, keeping parsing off the main thread. */
+    private HandlerThread dataWedgeThread;
+
+    /** Owns the reader, barcode stream and tag data; survives configuration changes. */
+    private ReaderViewModel viewModel;
 
     private final BroadcastReceiver dataWedgeReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
             String action = intent.getAction();
-            if (DW_INTENT_ACTION.equals(action) || DW_BARCODE_ACTION.equals(action)) {
-                // Barcode data
-                if (intent.hasExtra(DW_BARCODE_EXTRA)) {
-                    String barcode = intent.getStringExtra(DW_BARCODE_EXTRA);
-                    barcodeData(barcode);
-                }
-                // Status info
-                if (intent.hasExtra(DW_STATUS_EXTRA)) {
-                    String status = intent.getStringExtra(DW_STATUS_EXTRA);
-                    sendToast("DW Status: " + status);
-                }
-                // Version info
-                if (intent.hasExtra(DW_VERSION_EXTRA)) {
-                    String version = intent.getStringExtra(DW_VERSION_EXTRA);
-                    sendToast("DW Version: " + version);
-                }
+            if (!DW_INTENT_ACTION.equals(action) && !DW_BARCODE_ACTION.equals(action)) return;
+            // Barcode data
+            String barcode = intent.getStringExtra(DW_BARCODE_EXTRA);
+            if (barcode != null) {
+                viewModel.getBarcodeStream().publish(BarcodeEvent.Source.DATAWEDGE, barcode, firstDecodeData(intent),
+                        intent.getStringExtra(DW_LABEL_TYPE_EXTRA), -1, intent.getStringExtra(DW_SOURCE_EXTRA));
+                return;
+            }
+            // Status info
+            String status = intent.getStringExtra(DW_STATUS_EXTRA);
+            if (status != null) {
+                sendToast("DW Status: " + status);
+            }
+            // Version info
+            String version = intent.getStringExtra(DW_VERSION_EXTRA);
+            if (version != null) {
+                sendToast("DW Version: " + version);
             }
         }
     };
-    
+
+    @SuppressWarnings("unchecked")
+    private static byte[] firstDecodeData(Intent intent) {
+        Object decodeData = intent.getSerializableExtra(DW_DECODE_DATA_EXTRA);
+        if (decodeData instanceof List) {
+            List<byte[]> chunks = (List<byte[]>) decodeData;
+            if (!chunks.isEmpty()) return chunks.get(0);
+        }
+        return null;
+    }
+
+    /** Reused to build the scan result text without per-scan formatting. */
+    private final StringBuilder scanResultBuilder = new StringBuilder(64);
+    /** Last barcode shown; kept so the scan rate can be redrawn as it decays. */
+    private String lastBarcode = "";
+    private final Runnable refreshScanRate = this::renderScanResult;
+
     /** TextView to display RFID connection and operation status. */
     public TextView statusTextViewRFID;
     
     /** ListView to display scanned RFID tag data. */
     private ListView tagListView;
     
-    /** Adapter for the tag list. */
-    private ArrayAdapter<String> tagAdapter;
+    /** Adapter for the tag list; shows the current search result. */
+    private TagListAdapter tagAdapter;
     
-    /** List to hold tag strings for the adapter. */
-    private final ArrayList<String> tagList = new ArrayList<>();
+    /** Current search; null shows all tags. Only touched on the main thread. */
+    private TagIndex.Query tagQuery;
+
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    private String pendingSearchText = "";
+    private final Runnable applySearch = () -> {
+        TagIndex.Query query = TagIndex.Query.parse(pendingSearchText);
+        // Keep the previous result while the text is not a valid query yet
+        if (query == null) return;
+        tagQuery = query.isEmpty() ? null : query;
+        refreshTagList();
+    };
     
     /** TextView to display barcode scan results. */
     private TextView scanResult;
@@ -90,14 +136,38 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
     /** Button for Barcode Scanning. */
     private Button btnScan;
     
-    /** Handler for RFID and Scanner related operations. */
-    private RFIDHandler rfidHandler;
-    
-    /** Set to track unique tags discovered during the current session. */
-    private final HashSet<String> tagSet = new HashSet<>();
-    
+    /** Redraws the status line at most once per frame. */
+    private StatusRenderer statusRenderer;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
     private static final int BLUETOOTH_PERMISSION_REQUEST_CODE = 100;
 
+    /** Bump when the DataWedge profile contents change so it is re-provisioned on next launch. */
+    private static final int DW_PROFILE_VERSION = 1;
+    private static final String PREFS_NAME = "RFIDSamplePrefs";
+    private static final String PREF_DW_PROFILE_VERSION = "dw_profile_version";
+
+    /** Records time-to-first-frame and time-to-ready for this launch; kept by the view model. */
+    private StartupTimer startupTimer;
+
+    /** Executor for startup work that must not delay the first frame. */
+    private final ExecutorService startupExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Provisions the DataWedge profile in the background, only when the stored version differs.
+     */
+    private void provisionDataWedgeProfile() {
+        final Context appContext = getApplicationContext();
+        startupExecutor.execute(() -> {
+            SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            if (prefs.getInt(PREF_DW_PROFILE_VERSION, 0) != DW_PROFILE_VERSION) {
+                createDataWedgeProfile();
+                prefs.edit().putInt(PREF_DW_PROFILE_VERSION, DW_PROFILE_VERSION).apply();
+            }
+            startupTimer.mark(StartupTimer.PHASE_DATAWEDGE);
+        });
+    }
 
     /**
      * Create DataWedge profile to receive barcode data and disable RFID plug-in
@@ -170,34 +240,59 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
 
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        viewModel = new ViewModelProvider(this).get(ReaderViewModel.class);
+        startupTimer = viewModel.getStartupTimer();
+        startupTimer.mark(StartupTimer.PHASE_CREATE);
         setContentView(R.layout.activity_main);
-
-        // Programmatically create DataWedge profile for barcode, disable RFID
-        createDataWedgeProfile();
+        startupTimer.mark(StartupTimer.PHASE_CONTENT_VIEW);
 
         // Register DataWedge broadcast receiver
         IntentFilter filter = new IntentFilter();
         filter.addAction(DW_INTENT_ACTION);
         filter.addAction(DW_BARCODE_ACTION);
-        registerReceiver(dataWedgeReceiver, filter);
+        dataWedgeThread = new HandlerThread("DataWedgeReceiver");
+        dataWedgeThread.start();
+        registerReceiver(dataWedgeReceiver, filter, null, new Handler(dataWedgeThread.getLooper()));
+        viewModel.getBarcodeStream().setListener(this::renderBarcodes);
 
         statusTextViewRFID = findViewById(R.id.textViewStatusrfid);
         if (statusTextViewRFID != null) {
-            statusTextViewRFID.setOnClickListener(v -> {
-                if (rfidHandler != null) {
-                    rfidHandler.toggleConnection();
-                }
-            });
+            ReaderStatus readerStatus = viewModel.getReaderStatus();
+            statusRenderer = new StatusRenderer(readerStatus, statusTextViewRFID,
+                    ContextCompat.getColor(this, R.color.status_connected),
+                    ContextCompat.getColor(this, R.color.status_disconnected));
+            readerStatus.setListener(statusRenderer);
+            statusRenderer.onStatusChanged();
+            statusTextViewRFID.setOnClickListener(v -> viewModel.getRfidHandler().toggleConnection());
         }
 
         scanResult = findViewById(R.id.scanResult);
 
         // Initialize ListView and Adapter
         tagListView = findViewById(R.id.tag_list);
-        tagAdapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, tagList);
+        tagAdapter = new TagListAdapter(this, viewModel.getTagIndex());
         if (tagListView != null) {
             tagListView.setAdapter(tagAdapter);
         }
+        EditText tagSearch = findViewById(R.id.tag_search);
+        if (tagSearch != null) {
+            tagSearch.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                }
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+                }
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    pendingSearchText = s.toString();
+                    mainHandler.removeCallbacks(applySearch);
+                    mainHandler.postDelayed(applySearch, SEARCH_DEBOUNCE_MS);
+                }
+            });
+        }
 
         btnStart = findViewById(R.id.TestButton);
         btnStop = findViewById(R.id.TestButton2);
@@ -210,28 +305,17 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
         // Initially disable scan button until session established
         if (btnScan != null) btnScan.setEnabled(false);
 
-        rfidHandler = new RFIDHandler();
-        checkPermissionsAndInit();
-    }
-
-    /**
-     * Updates the reader status UI with appropriate colors.
-     * @param status The status message to display.
-     * @param isConnected Whether the reader is connected.
-     */
-    public void updateReaderStatus(String status, boolean isConnected) {
-        runOnUiThread(() -> {
-            if (statusTextViewRFID != null) {
-                statusTextViewRFID.setText(status);
-                if (isConnected) {
-                    statusTextViewRFID.setTextColor(ContextCompat.getColor(this, R.color.status_connected));
-                    if (btnStart != null) btnStart.setEnabled(true);
-                } else {
-                    statusTextViewRFID.setTextColor(ContextCompat.getColor(this, R.color.status_disconnected));
-                    if (btnStart != null) btnStart.setEnabled(false);
-                    if (btnStop != null) btnStop.setEnabled(false);
-                }
-            }
+        // Restores buttons and the tag list when the model outlived a previous instance
+        viewModel.attach(this);
+
+        // Defer everything not needed for the first frame until it has been drawn
+        View decorView = getWindow().getDecorView();
+        decorView.post(() -> {
+            startupTimer.mark(StartupTimer.PHASE_FIRST_FRAME);
+            // Programmatically create DataWedge profile for barcode, disable RFID
+            provisionDataWedgeProfile();
+            viewModel.startSyncQueue(getString(R.string.sync_endpoint));
+            checkPermissionsAndInit();
         });
     }
 
@@ -247,10 +331,10 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
                         new String[]{Manifest.permission.BLUETOOTH_SCAN, Manifest.permission.BLUETOOTH_CONNECT},
                         BLUETOOTH_PERMISSION_REQUEST_CODE);
             } else {
-                rfidHandler.onCreate(this);
+                viewModel.initReader();
             }
         } else {
-            rfidHandler.onCreate(this);
+            viewModel.initReader();
         }
     }
 
@@ -258,7 +342,7 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         if (requestCode == BLUETOOTH_PERMISSION_REQUEST_CODE) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-                rfidHandler.onCreate(this);
+                viewModel.initReader();
             } else {
                 Toast.makeText(this, "Bluetooth Permissions not granted", Toast.LENGTH_SHORT).show();
             }
@@ -272,21 +356,49 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        MenuItem traceItem = menu.findItem(R.id.trace_recording);
+        if (traceItem != null) {
+            traceItem.setTitle(viewModel.isTraceRecording() ? R.string.stop_trace_recording : R.string.start_trace_recording);
+        }
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
         String result;
         if (id == R.id.antenna_settings) {
-            result = rfidHandler.Test1();
+            result = viewModel.getRfidHandler().Test1();
             Toast.makeText(this, result, Toast.LENGTH_SHORT).show();
             return true;
         } else if (id == R.id.Singulation_control) {
-            result = rfidHandler.Test2();
+            result = viewModel.getRfidHandler().Test2();
             Toast.makeText(this, result, Toast.LENGTH_SHORT).show();
             return true;
         } else if (id == R.id.Default) {
-            result = rfidHandler.Defaults();
-            Toast.makeText(this, result, Toast.LENGTH_SHORT).show();
+            viewModel.getRfidHandler().Defaults().thenAccept(applyResult -> viewModel.sendToast(applyResult.toString()));
+            return true;
+        } else if (id == R.id.read_tid) {
+            List<String> epcs = listedEpcs();
+            if (epcs.isEmpty()) {
+                Toast.makeText(this, R.string.no_listed_tags, Toast.LENGTH_SHORT).show();
+            } else {
+                viewModel.readTid(epcs);
+            }
+            return true;
+        } else if (id == R.id.encode_user_memory) {
+            showEncodeDialog();
+            return true;
+        } else if (id == R.id.trace_recording) {
+            viewModel.setTraceRecording(!viewModel.isTraceRecording());
+            return true;
+        } else if (id == R.id.replay_trace) {
+            viewModel.replayLatestTrace();
+            return true;
+        } else if (id == R.id.portal) {
+            showPortalDialog();
             return true;
         }
         return super.onOptionsItemSelected(item);
@@ -295,43 +407,51 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
     @Override
     protected void onPause() {
         super.onPause();
-        rfidHandler.onPause();
+        // A rotation keeps the reader connected; the model hands it to the next instance
+        if (!isChangingConfigurations()) viewModel.onPause();
     }
 
     @Override
     protected void onPostResume() {
         super.onPostResume();
-        rfidHandler.onResume();
+        viewModel.onResume();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        rfidHandler.onDestroy();
+        mainHandler.removeCallbacks(applySearch);
+        mainHandler.removeCallbacks(refreshScanRate);
+        viewModel.detach(this);
+        viewModel.getReaderStatus().setListener(null);
+        if (statusRenderer != null) statusRenderer.detach();
         unregisterReceiver(dataWedgeReceiver);
+        dataWedgeThread.quitSafely();
+        viewModel.getBarcodeStream().setListener(null);
+        startupExecutor.shutdown();
     }
 
-    /**
-     * Toggles the enabled state of the Inventory control buttons.
-     * @param isRunning True if inventory is currently running.
-     */
-    private void toggleInventoryButtons(boolean isRunning) {
-        runOnUiThread(() -> {
-            if (btnStart != null) btnStart.setEnabled(!isRunning);
-            if (btnStop != null) btnStop.setEnabled(isRunning);
-        });
+    @Override
+    public void onConnectionChanged(boolean connected) {
+        if (btnStart != null) btnStart.setEnabled(connected && !viewModel.isInventoryRunning());
+        if (!connected && btnStop != null) btnStop.setEnabled(false);
     }
 
-    /**
-     * Enables or disables the scan button.
-     * @param enabled True to enable the button.
-     */
-    public void setScanButtonEnabled(boolean enabled) {
-        runOnUiThread(() -> {
-            if (btnScan != null) {
-                btnScan.setEnabled(enabled);
-            }
-        });
+    @Override
+    public void onInventoryChanged(boolean running) {
+        if (btnStart != null) btnStart.setEnabled(!running
+                && viewModel.getReaderStatus().getConnectionState() == ReaderStatus.ConnectionState.CONNECTED);
+        if (btnStop != null) btnStop.setEnabled(running);
+    }
+
+    @Override
+    public void onScanButtonEnabled(boolean enabled) {
+        if (btnScan != null) btnScan.setEnabled(enabled);
+    }
+
+    @Override
+    public void onTagsChanged() {
+        refreshTagList();
     }
 
     /**
@@ -339,19 +459,7 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
      * @param view The view that was clicked.
      */
     public void StartInventory(View view) {
-        toggleInventoryButtons(true);
-        clearTagData();
-        rfidHandler.performInventory();
-    }
-
-    private void clearTagData() {
-        runOnUiThread(() -> {
-            tagSet.clear();
-            tagList.clear();
-            if (tagAdapter != null) {
-                tagAdapter.notifyDataSetChanged();
-            }
-        });
+        viewModel.startInventory();
     }
 
     /**
@@ -359,7 +467,7 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
      * @param view The view that was clicked.
      */
     public void scanCode(View view) {
-        rfidHandler.scanCode();
+        viewModel.getRfidHandler().scanCode();
     }
 
     /**
@@ -367,7 +475,7 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
      * @param view The view that was clicked.
      */
     public void testFunction(View view) {
-        rfidHandler.testFunction();
+        viewModel.getRfidHandler().testFunction();
     }
 
     /**
@@ -375,69 +483,106 @@ public class MainActivity extends AppCompatActivity implements RFIDHandler.Respo
      * @param view The view that was clicked.
      */
     public void StopInventory(View view) {
-        toggleInventoryButtons(false);
-        rfidHandler.stopInventory();
+        viewModel.stopInventory();
     }
 
-    @SuppressLint("SetTextI18n")
-    @Override
-    public void handleTagdata(TagData[] tagData) {
-        if (tagData == null || tagData.length == 0) return;
-
-        final ArrayList<String> newTags = new ArrayList<>();
-        for (TagData tag : tagData) {
-            if (tag == null) continue;
-            String tagId = tag.getTagID();
-            if (tagId != null && !tagSet.contains(tagId)) {
-                tagSet.add(tagId);
-                newTags.add(tagId + " (RSSI: " + tag.getPeakRSSI() + ")");
-            }
+    /** @return EPCs of the tags currently shown in the list. */
+    private List<String> listedEpcs() {
+        TagIndex tagIndex = viewModel.getTagIndex();
+        TagIndex.Result result = tagQuery != null ? tagIndex.search(tagQuery) : tagIndex.all();
+        List<String> epcs = new ArrayList<>(result.size());
+        for (int i = 0; i < result.size(); i++) {
+            epcs.add(tagIndex.getEpc(result.idAt(i)));
         }
-        
-        if (!newTags.isEmpty()) {
-            final int totalUniqueTags = tagSet.size();
-            runOnUiThread(() -> {
-                // Ensure list modification and notifyDataSetChanged happen together on UI thread
-                tagList.addAll(0, newTags); 
-                if (tagAdapter != null) {
-                    tagAdapter.notifyDataSetChanged();
-                }
-                
-                // Update status with unique tag count
-                if (statusTextViewRFID != null && statusTextViewRFID.getText() != null) {
-                    String statusStr = statusTextViewRFID.getText().toString();
-                    if (statusStr.contains("Connected")) {
-                        String[] parts = statusStr.split("\n");
-                        String currentStatus = parts.length > 0 ? parts[0] : statusStr;
-                        statusTextViewRFID.setText(currentStatus + "\nUnique Tags: " + totalUniqueTags);
-                    }
-                }
-            });
+        return epcs;
+    }
+
+    /** Asks for the data to write into the user memory of the listed tags. */
+    private void showEncodeDialog() {
+        List<String> epcs = listedEpcs();
+        if (epcs.isEmpty()) {
+            Toast.makeText(this, R.string.no_listed_tags, Toast.LENGTH_SHORT).show();
+            return;
         }
+        EditText input = new EditText(this);
+        input.setHint(R.string.encode_hint);
+        input.setSingleLine();
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.encode_user_memory)
+                .setView(input)
+                .setPositiveButton(R.string.write, (dialog, which) -> encode(epcs, input.getText().toString(), false))
+                .setNeutralButton(R.string.write_and_lock, (dialog, which) -> encode(epcs, input.getText().toString(), true))
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
     }
 
-    @Override
-    public void handleTriggerPress(boolean pressed) {
-        toggleInventoryButtons(pressed);
-        if (pressed) {
-            clearTagData();
-            rfidHandler.performInventory();
-        } else {
-            rfidHandler.stopInventory();
+    /** Asks for the outside and inside antenna of a dock-door portal, or turns detection off. */
+    private void showPortalDialog() {
+        EditText input = new EditText(this);
+        input.setHint(R.string.portal_hint);
+        input.setSingleLine();
+        int[] antennas = viewModel.getPortalAntennas();
+        if (antennas != null) input.setText(antennas[0] + "," + antennas[1]);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.portal)
+                .setView(input)
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> enablePortal(input.getText().toString()))
+                .setNeutralButton(R.string.portal_off, (dialog, which) -> viewModel.disablePortal())
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void enablePortal(String antennas) {
+        String[] parts = antennas.split(",");
+        try {
+            if (parts.length != 2) throw new IllegalArgumentException(getString(R.string.portal_hint));
+            viewModel.enablePortal(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+        } catch (NumberFormatException e) {
+            Toast.makeText(this, R.string.portal_hint, Toast.LENGTH_SHORT).show();
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
         }
     }
 
-    @Override
-    public void barcodeData(String val) {
-        runOnUiThread(() -> {
-            if (scanResult != null) {
-                scanResult.setText(String.format("Scan Result : %s", val != null ? val : ""));
-            }
-        });
+    private void encode(List<String> epcs, String hexData, boolean lock) {
+        try {
+            viewModel.encodeUserMemory(epcs, hexData.trim(), lock);
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
     }
 
-    @Override
-    public void sendToast(String val) {
-        runOnUiThread(() -> Toast.makeText(MainActivity.this, val, Toast.LENGTH_SHORT).show());
+    /** Re-runs the current search, or shows all tags, against the index. Main thread only. */
+    private void refreshTagList() {
+        if (tagAdapter == null) return;
+        TagIndex tagIndex = viewModel.getTagIndex();
+        tagAdapter.setResult(tagQuery != null ? tagIndex.search(tagQuery) : tagIndex.all());
+    }
+
+    /**
+     * Renders a batch of barcodes on the main thread; only the latest one is shown.
+     * @param batch Barcodes published since the last batch.
+     */
+    private void renderBarcodes(List<BarcodeEvent> batch) {
+        if (scanResult == null || batch.isEmpty()) return;
+        BarcodeEvent latest = batch.get(batch.size() - 1);
+        lastBarcode = latest.data != null ? latest.data : "";
+        renderScanResult();
+    }
+
+    /** Shows the last barcode with the current scan rate; redraws until the rate has dropped to zero. */
+    private void renderScanResult() {
+        if (scanResult == null) return;
+        int rate = viewModel.getBarcodeStream().getRatePerSecond();
+        scanResultBuilder.setLength(0);
+        scanResultBuilder.append(SCAN_RESULT_PREFIX).append(lastBarcode);
+        if (rate > 0) scanResultBuilder.append(SCAN_RATE_PREFIX).append(rate).append(SCAN_RATE_SUFFIX);
+        scanResult.setText(scanResultBuilder.toString());
+        mainHandler.removeCallbacks(refreshScanRate);
+        if (rate > 0) mainHandler.postDelayed(refreshScanRate, SCAN_RATE_REFRESH_MS);
+    }
+
+    private void sendToast(String val) {
+        viewModel.sendToast(val);
     }
 }
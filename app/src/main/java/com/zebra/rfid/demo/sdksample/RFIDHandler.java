@@ -1,12 +1,11 @@
 package com.zebra.rfid.demo.sdksample;
 
+import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.widget.TextView;
 
-import com.zebra.rfid.api3.Antennas;
-import com.zebra.rfid.api3.ENUM_TRANSPORT;
 import com.zebra.rfid.api3.HANDHELD_TRIGGER_EVENT_TYPE;
 import com.zebra.rfid.api3.INVENTORY_STATE;
 import com.zebra.rfid.api3.IRFIDLogger;
@@ -23,12 +22,16 @@ import com.zebra.rfid.api3.SL_FLAG;
 import com.zebra.rfid.api3.STATUS_EVENT_TYPE;
 import com.zebra.rfid.api3.TagData;
 import com.zebra.scannercontrol.DCSSDKDefs;
-import com.zebra.scannercontrol.DCSScannerInfo;
-import com.zebra.scannercontrol.SDKHandler;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Handler class for RFID operations.
@@ -37,15 +40,14 @@ import java.util.concurrent.Executors;
  */
 class RFIDHandler implements Readers.RFIDReaderEventHandler {
     // Helper for selecting a reader from available devices
-    private RFIDReader selectReader(ArrayList<ReaderDevice> availableReaders) {
+    private ReaderSdk.Reader selectReader(List<ReaderSdk.Reader> availableReaders) {
         if (availableReaders == null || availableReaders.isEmpty()) return null;
         if (availableReaders.size() == 1) {
-            ReaderDevice singleDevice = availableReaders.get(0);
-            return (singleDevice != null) ? singleDevice.getRFIDReader() : null;
+            return availableReaders.get(0);
         } else {
-            for (ReaderDevice device : availableReaders) {
+            for (ReaderSdk.Reader device : availableReaders) {
                 if (device != null && device.getName() != null && device.getName().startsWith(READER_NAME_PREFIX)) {
-                    return device.getRFIDReader();
+                    return device;
                 }
             }
         }
@@ -53,14 +55,14 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
     }
 
     // Helper for populating scanner list
-    private void populateScannerList(ArrayList<DCSScannerInfo> availableScanners) {
+    private void populateScannerList(List<ScannerSdk.ScannerInfo> availableScanners) {
         if (scannerList != null) {
             scannerList.clear();
         } else {
             scannerList = new ArrayList<>();
         }
         if (availableScanners != null) {
-            for (DCSScannerInfo scanner : availableScanners) {
+            for (ScannerSdk.ScannerInfo scanner : availableScanners) {
                 if (scanner != null) {
                     scannerList.add(scanner);
                 }
@@ -72,11 +74,11 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
     private void establishScannerSessions() {
         if (reader != null && reader.isConnected()) {
             String hostName = reader.getHostName();
-            for (DCSScannerInfo device : scannerList) {
-                if (device != null && device.getScannerName() != null && hostName != null && device.getScannerName().contains(hostName)) {
+            for (ScannerSdk.ScannerInfo device : scannerList) {
+                if (device != null && device.name != null && hostName != null && device.name.contains(hostName)) {
                     try {
-                        sdkHandler.dcssdkEstablishCommunicationSession(device.getScannerID());
-                        scannerID = device.getScannerID();
+                        scannerSdk.establishSession(device.id);
+                        scannerID = device.id;
                     } catch (Exception e) {
                         Log.e(TAG, "Error establishing scanner session", e);
                     }
@@ -87,74 +89,170 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
 
     private static final String TAG = "RFID_SAMPLE";
     private static final int MAX_POWER = 270;
+    /** Tags taken from the reader's buffer per call; each call becomes one batch downstream. */
+    private static final int READ_BATCH = 100;
     // String constants for repeated literals
     private static final String READER_NAME_PREFIX = "RFD";
     private static final String CONNECTING_STATUS = "Connecting...";
     private static final String ERROR_GETTING_READERS = "Error getting available readers";
     private static final String FAILED_TO_FIND_READER = "Failed to find reader";
-    private static final String DEFAULT_SETTINGS_APPLIED = "Default settings applied";
     private static final String CONNECTION_FAILED = "Connection failed: ";
     private static final String ERROR_DURING_DISCONNECT = "Error during disconnect";
     private static final String ERROR_DURING_DISPOSE = "Error during dispose";
     private static final String CONNECTED_PREFIX = "Connected: ";
-    private static final String DISCONNECTED = "Disconnected";
+    private static final String REPLAY_WHILE_CONNECTED = "Disconnect the reader to replay a trace";
+    static final String DISCONNECTED = "Disconnected";
 
-    private Readers readers;
-    private RFIDReader reader;
+    private final Function<Context, ReaderSdk> readerSdkFactory;
+    private final Function<Context, ScannerSdk> scannerSdkFactory;
+    private ReaderSdk readers;
+    private ReaderSdk.Reader reader;
     private EventHandler eventHandler;
-    private MainActivity context;
-    private SDKHandler sdkHandler;
+    /** Owner of this handler; outlives activity instances, so no activity is referenced here. */
+    private ReaderViewModel context;
+    private ScannerSdk scannerSdk;
     private ScannerHandler scannerHandler;
-    private ArrayList<DCSScannerInfo> scannerList;
+    private TagAccessEngine accessEngine;
+    /** Captures reader and scanner events for later replay. */
+    private final TraceRecorder traceRecorder = new TraceRecorder();
+    /** Singulation settings to restore once a straggler pass ends; only touched on the executor. */
+    private ReaderConfigService.ReaderSettings settingsBeforeStragglerPass;
+    /** Bumped by every stop, so a straggler pass still being configured does not restart inventory. */
+    private volatile int stopCount;
+    private ArrayList<ScannerSdk.ScannerInfo> scannerList;
     private int scannerID;
     private final Handler uiHandler = new Handler(Looper.getMainLooper());
     private int connectionTimer = 0;
     private final Runnable timerRunnable = () -> {
         if (context != null) {
-            context.updateReaderStatus(CONNECTING_STATUS + " " + connectionTimer++ + "s", false);
+            context.updateReaderStatus(CONNECTING_STATUS + " " + connectionTimer++ + "s", ReaderStatus.ConnectionState.CONNECTING);
             uiHandler.postDelayed(this.timerRunnable, 1000);
         }
     };
-    /** Executor for background tasks. */
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    /** Executor for background tasks; single-threaded, with its queue visible for diagnostics. */
+    private final ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    /** Applies reader settings on {@link #executor} and re-applies them after reconnects. */
+    private final ReaderConfigService configService = new ReaderConfigService(this, executor);
+
+    RFIDHandler() {
+        this(ZebraReaderSdk::new, ZebraScannerSdk::new);
+    }
+
+    /**
+     * @param readerSdkFactory Creates the reader SDK from the application context on the first connect.
+     * @param scannerSdkFactory Creates the scanner SDK from the application context on each connect.
+     */
+    RFIDHandler(Function<Context, ReaderSdk> readerSdkFactory, Function<Context, ScannerSdk> scannerSdkFactory) {
+        this.readerSdkFactory = readerSdkFactory;
+        this.scannerSdkFactory = scannerSdkFactory;
+    }
 
     /**
-     * Initializes the RFIDHandler with the activity context.
-     * @param activity The MainActivity context.
+     * Initializes the RFIDHandler with its lifecycle-scoped owner.
+     * @param owner The view model owning the reader connection.
      */
-    void onCreate(MainActivity activity) {
-        context = activity;
+    void onCreate(ReaderViewModel owner) {
+        context = owner;
         scannerList = new ArrayList<>();
-        scannerHandler = new ScannerHandler(activity);
-        initSDK();
+        accessEngine = new TagAccessEngine(this);
+        // Reader and scanner SDKs are initialized lazily on the first connect, off the main thread
+    }
+
+    /**
+     * @return The batch engine for tag memory read/write/lock operations.
+     */
+    TagAccessEngine getAccessEngine() {
+        return accessEngine;
+    }
+
+    /**
+     * @return The recorder for reader and scanner event traces.
+     */
+    TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
+    /**
+     * Replays a recorded trace on the reader executor. Refused while a reader is connected, so
+     * replayed triggers cannot start or stop a live inventory; connects requested during the
+     * replay run after it. Replayed disconnections are only counted.
+     * @param file Trace file written by {@link TraceRecorder}.
+     * @param speed Playback speed multiplier; {@link TraceReplayer#MAX_SPEED} replays without pacing.
+     * @param sink Receives the replayed events; must not drive the reader.
+     */
+    void replayTrace(File file, double speed, ResponseHandlerInterface sink) {
+        executor.execute(() -> {
+            if (isReaderConnected()) {
+                sink.sendToast(REPLAY_WHILE_CONNECTED);
+                return;
+            }
+            try {
+                TraceReplayer.Report report = new TraceReplayer(sink, null).replay(file, speed);
+                Log.i(TAG, report.toString());
+                sink.sendToast(report.toString());
+            } catch (IOException e) {
+                Log.e(TAG, "Error replaying trace", e);
+                sink.sendToast("Replay failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * @return The reader if it is connected, otherwise null.
+     */
+    synchronized RFIDReader getConnectedReader() {
+        return isReaderConnected() ? reader.getRFIDReader() : null;
+    }
+
+    /**
+     * @return Tasks waiting on the reader executor; a growing backlog means events arrive
+     * faster than they are handled.
+     */
+    int getExecutorBacklog() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return Future completed once the tasks queued on the reader executor so far have run.
+     */
+    CompletableFuture<Void> afterQueuedTasks() {
+        return CompletableFuture.runAsync(() -> { }, executor);
     }
 
     public String Test1() { return "TO DO"; }
     public String Test2() { return "TODO2"; }
 
     /**
-     * Resets the reader settings to defaults.
-     * @return Success or error message.
+     * Resets the reader settings to defaults without blocking the caller.
+     * Only settings that differ from the cached reader state are sent.
+     * @return Future completed with the apply result.
      */
-    public String Defaults() {
-        if (!isReaderConnected()) return DISCONNECTED;
-        try {
-            Antennas.AntennaRfConfig config = reader.Config.Antennas.getAntennaRfConfig(1);
-            config.setTransmitPowerIndex(MAX_POWER);
-            config.setrfModeTableIndex(0);
-            config.setTari(0);
-            reader.Config.Antennas.setAntennaRfConfig(1, config);
-
-            Antennas.SingulationControl singulationControl = reader.Config.Antennas.getSingulationControl(1);
-            singulationControl.setSession(SESSION.SESSION_S0);
-            singulationControl.Action.setInventoryState(INVENTORY_STATE.INVENTORY_STATE_A);
-            singulationControl.Action.setSLFlag(SL_FLAG.SL_ALL);
-            reader.Config.Antennas.setSingulationControl(1, singulationControl);
-        } catch (InvalidUsageException | OperationFailureException e) {
-            Log.e(TAG, "Error in Defaults", e);
-            return e.getMessage();
-        }
-        return DEFAULT_SETTINGS_APPLIED;
+    public CompletableFuture<ReaderConfigService.ApplyResult> Defaults() {
+        ReaderConfigService.ReaderSettings defaults = new ReaderConfigService.ReaderSettings();
+        defaults.transmitPowerIndex = MAX_POWER;
+        defaults.rfModeTableIndex = 0L;
+        defaults.tari = 0L;
+        defaults.session = SESSION.SESSION_S0;
+        defaults.inventoryState = INVENTORY_STATE.INVENTORY_STATE_A;
+        defaults.slFlag = SL_FLAG.SL_ALL;
+        return configService.apply(defaults);
+    }
+
+    /**
+     * @return The asynchronous reader configuration service.
+     */
+    ReaderConfigService getConfigService() {
+        return configService;
+    }
+
+    /**
+     * Shows how far the reader configuration has been reconciled with the desired settings.
+     * @param done Fields sent so far.
+     * @param total Fields to send; zero clears the progress.
+     */
+    void onReconcileProgress(int done, int total) {
+        if (context != null) context.getReaderStatus().setReconcileProgress(done, total);
     }
 
     private boolean isReaderConnected() {
@@ -187,6 +285,8 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
     }
 
     void onDestroy() {
+        traceRecorder.stop();
+        if (accessEngine != null) accessEngine.shutdown();
         dispose();
         executor.shutdown();
     }
@@ -205,7 +305,7 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
         executor.execute(() -> {
             // Update UI to show connection is in progress
             if (context != null) {
-                 context.updateReaderStatus(CONNECTING_STATUS, false);
+                 context.updateReaderStatus(CONNECTING_STATUS, ReaderStatus.ConnectionState.CONNECTING);
             }
             synchronized (RFIDHandler.this) {
                 if (!isReaderConnected()) {
@@ -226,11 +326,11 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
     }
 
     private synchronized void getAvailableReader() {
+        initSDK();
         if (readers != null) {
             readers.attach(this);
             try {
-                ArrayList<ReaderDevice> availableReaders = readers.GetAvailableRFIDReaderList();
-                reader = selectReader(availableReaders);
+                reader = selectReader(readers.getAvailableReaders());
             } catch (InvalidUsageException e) {
                 Log.e(TAG, ERROR_GETTING_READERS, e);
             }
@@ -263,9 +363,11 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
                         uiHandler.removeCallbacks(timerRunnable);
                     }
                     long duration = System.currentTimeMillis() - startTime;
+                    registerEvents();
                     configureReader();
                     setupScannerSdk();
                     if (reader.isConnected()) {
+                            if (context != null) context.getReaderStatus().setConnected(reader.getHostName(), duration);
                             return CONNECTED_PREFIX + reader.getHostName() + " (" + duration + " ms)";
                     }
                 } else {
@@ -286,37 +388,31 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
 
     public void setupScannerSdk() {
             // This method was previously called setupScannerSDK (case mismatch). Now unified as setupScannerSdk.
-        if (sdkHandler == null) {
-            sdkHandler = new SDKHandler(context);
-            sdkHandler.dcssdkSetOperationalMode(DCSSDKDefs.DCSSDK_MODE.DCSSDK_OPMODE_USB_CDC);
-            sdkHandler.dcssdkSetOperationalMode(DCSSDKDefs.DCSSDK_MODE.DCSSDK_OPMODE_BT_NORMAL);
-            sdkHandler.dcssdkSetDelegate(scannerHandler);
-            int notificationsMask = DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_SCANNER_APPEARANCE.value |
-                DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_SCANNER_DISAPPEARANCE.value |
-                DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_BARCODE.value |
-                DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_SESSION_ESTABLISHMENT.value |
-                DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_SESSION_TERMINATION.value;
-            sdkHandler.dcssdkSubsribeForEvents(notificationsMask);
+        if (scannerHandler == null) {
+            scannerHandler = new ScannerHandler(context, traceRecorder);
+        }
+        if (scannerSdk == null) {
+            scannerSdk = scannerSdkFactory.apply(context.getApplication());
+            scannerSdk.start(scannerHandler);
         }
 
-        ArrayList<DCSScannerInfo> availableScanners = (ArrayList<DCSScannerInfo>) sdkHandler.dcssdkGetAvailableScannersList();
-        populateScannerList(availableScanners);
+        populateScannerList(scannerSdk.getAvailableScanners());
         establishScannerSessions();
     }
 
     private synchronized void disconnect() {
         try {
             if (reader != null) {
-                if (eventHandler != null) reader.Events.removeEventsListener(eventHandler);
-                if (sdkHandler != null) {
-                    sdkHandler.dcssdkTerminateCommunicationSession(scannerID);
+                if (eventHandler != null) reader.removeEventsListener(eventHandler);
+                if (scannerSdk != null) {
+                    scannerSdk.terminateSession(scannerID);
                 }
                 reader.disconnect();
                 if (context != null)
                     context.updateReaderStatus(DISCONNECTED, false);
-                reader.Dispose();
+                reader.dispose();
                 reader = null;
-                sdkHandler = null;
+                scannerSdk = null;
             }
         } catch (Exception e) {
             Log.e(TAG, ERROR_DURING_DISCONNECT, e);
@@ -327,7 +423,7 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
         disconnect();
         try {
             if (readers != null) {
-                readers.Dispose();
+                readers.dispose();
                 readers = null;
             }
         } catch (Exception e) {
@@ -337,29 +433,79 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
 
     synchronized void performInventory() {
         try {
-            if (reader != null && reader.isConnected()) reader.Actions.Inventory.perform();
+            if (reader != null && reader.isConnected()) reader.performInventory();
         } catch (InvalidUsageException | OperationFailureException e) {
             Log.e(TAG, "Error performing inventory", e);
         }
     }
 
+    /**
+     * Stops inventory and, if it was a straggler pass, restores the session it replaced.
+     */
     synchronized void stopInventory() {
+        stopCount++;
+        stopReaderInventory();
+        if (!executor.isShutdown()) executor.execute(this::restoreAfterStragglerPass);
+    }
+
+    private synchronized void stopReaderInventory() {
         try {
-            if (reader != null && reader.isConnected()) reader.Actions.Inventory.stop();
+            if (reader != null && reader.isConnected()) reader.stopInventory();
         } catch (InvalidUsageException | OperationFailureException e) {
             Log.e(TAG, "Error stopping inventory", e);
         }
     }
 
+    /**
+     * Restarts inventory in session S2 with target A, so tags already read stay quiet
+     * and weaker tags get a chance to respond.
+     */
+    void startStragglerPass() {
+        executor.execute(() -> {
+            if (settingsBeforeStragglerPass == null) {
+                // What is on the reader, not the desired configuration, which may never have set a session
+                ReaderConfigService.ReaderSettings current = configService.readSingulation();
+                if (current == null || current.session == null) {
+                    Log.w(TAG, "Session on the reader unknown, skipping straggler pass");
+                    return;
+                }
+                settingsBeforeStragglerPass = current;
+            }
+            stopReaderInventory();
+            ReaderConfigService.ReaderSettings settings = new ReaderConfigService.ReaderSettings();
+            settings.session = SESSION.SESSION_S2;
+            settings.inventoryState = INVENTORY_STATE.INVENTORY_STATE_A;
+            int stops = stopCount;
+            configService.apply(settings).thenRun(() -> {
+                if (stopCount == stops) performInventory();
+            });
+        });
+    }
+
+    /**
+     * Stops inventory off the calling thread.
+     */
+    void autoStopInventory() {
+        executor.execute(this::stopInventory);
+    }
+
+    /** Puts back the singulation settings a straggler pass replaced. Runs on the executor. */
+    private void restoreAfterStragglerPass() {
+        ReaderConfigService.ReaderSettings restore = settingsBeforeStragglerPass;
+        if (restore == null) return;
+        settingsBeforeStragglerPass = null;
+        configService.apply(restore);
+    }
+
     public void scanCode() {
         String inXml = "<inArgs><scannerID>" + scannerID + "</scannerID></inArgs>";
         executor.execute(() -> executeCommand(DCSSDKDefs.DCSSDK_COMMAND_OPCODE.DCSSDK_DEVICE_PULL_TRIGGER, inXml, new StringBuilder(), scannerID));
     }
 
     private boolean executeCommand(DCSSDKDefs.DCSSDK_COMMAND_OPCODE opCode, String inXML, StringBuilder outXML, int scannerID) {
-        if (sdkHandler != null) {
+        if (scannerSdk != null) {
             if (outXML == null) outXML = new StringBuilder();
-            DCSSDKDefs.DCSSDK_RESULT result = sdkHandler.dcssdkExecuteCommandOpCodeInXMLForScanner(opCode, inXML, outXML, scannerID);
+            DCSSDKDefs.DCSSDK_RESULT result = scannerSdk.executeCommand(opCode, inXML, outXML, scannerID);
             return result == DCSSDKDefs.DCSSDK_RESULT.DCSSDK_RESULT_SUCCESS;
         }
         return false;
@@ -368,10 +514,20 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
     public class EventHandler implements RfidEventsListener {
         @Override
         public void eventReadNotify(RfidReadEvents e) {
-            if (reader == null) return;
-            TagData[] myTags = reader.Actions.getReadTags(100);
-            if (myTags != null && context != null) {
-                executor.execute(() -> context.handleTagdata(myTags));
+            ReaderSdk.Reader current = reader;
+            if (current == null) return;
+            // Drain everything buffered so a burst of notifications becomes a few large batches;
+            // later notifications of the burst find the buffer empty
+            TagData[] myTags;
+            while ((myTags = current.getReadTags(READ_BATCH)) != null) {
+                TagData[] batch = myTags;
+                traceRecorder.recordReadBatch(batch);
+                if (accessEngine != null) {
+                    accessEngine.onTagData(batch);
+                }
+                if (context != null) {
+                    executor.execute(() -> context.handleTagdata(batch));
+                }
             }
         }
 
@@ -383,12 +539,14 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
                 if (rfidStatusEvents.StatusEventData.HandheldTriggerEventData != null) {
                     HANDHELD_TRIGGER_EVENT_TYPE triggerEvent = rfidStatusEvents.StatusEventData.HandheldTriggerEventData.getHandheldEvent();
                     boolean pressed = (triggerEvent == HANDHELD_TRIGGER_EVENT_TYPE.HANDHELD_TRIGGER_PRESSED);
+                    traceRecorder.recordTrigger(pressed);
                     if (context != null) {
                         executor.execute(() -> context.handleTriggerPress(pressed));
                     }
                 }
             }
             else if (eventType == STATUS_EVENT_TYPE.DISCONNECTION_EVENT) {
+                traceRecorder.recordDisconnect();
                 executor.execute(() -> {
                     disconnect();
                     dispose();
@@ -397,13 +555,27 @@ class RFIDHandler implements Readers.RFIDReaderEventHandler {
         }
     }
 
-    // Ensure method signatures for initSDK and configureReader exist
-    private void initSDK() {
-        // SDK initialization logic can be implemented here if needed
+    /**
+     * Creates the reader SDK entry point on first use.
+     * Must be called from the background executor; construction binds transports and is slow.
+     */
+    private synchronized void initSDK() {
+        if (readers == null && context != null) {
+            readers = readerSdkFactory.apply(context.getApplication());
+        }
+    }
+
+    /**
+     * Registers for the read, trigger and disconnect events the handlers and the access engine
+     * depend on. Access results arrive as tag reads, so tag read events must be on.
+     */
+    private void registerEvents() throws InvalidUsageException, OperationFailureException {
+        if (eventHandler == null) eventHandler = new EventHandler();
+        reader.registerEvents(eventHandler);
     }
 
     private void configureReader() {
-        // Reader configuration logic can be implemented here if needed
+        configService.onReaderConnected();
     }
 
     interface ResponseHandlerInterface {
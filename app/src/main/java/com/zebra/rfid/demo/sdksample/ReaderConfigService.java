@@ -0,0 +1,322 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.zebra.rfid.api3.Antennas;
+import com.zebra.rfid.api3.INVENTORY_STATE;
+import com.zebra.rfid.api3.InvalidUsageException;
+import com.zebra.rfid.api3.OperationFailureException;
+import com.zebra.rfid.api3.RFIDReader;
+import com.zebra.rfid.api3.SESSION;
+import com.zebra.rfid.api3.SL_FLAG;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous reader configuration with a cached copy of the reader state.
+ * Changes are merged into a desired configuration and applied on the reader
+ * executor; only fields that differ from what is known to be on the reader are
+ * sent, and the antenna objects fetched from the reader are cached so repeated
+ * applies skip the get round trip. The desired configuration is re-applied
+ * automatically after every reconnect. Progress of each apply is reported to the
+ * status line as reconcile progress, in fields sent out of fields that differ.
+ */
+class ReaderConfigService {
+
+    private static final String TAG = "ReaderConfigService";
+    private static final int ANTENNA_ID = 1;
+    private static final String NO_CHANGES = "No changes";
+    private static final String SETTINGS_APPLIED = "Settings applied";
+
+    /**
+     * Reader settings; null fields are unspecified and left untouched.
+     */
+    static final class ReaderSettings {
+        Integer transmitPowerIndex;
+        Long rfModeTableIndex;
+        Long tari;
+        SESSION session;
+        INVENTORY_STATE inventoryState;
+        SL_FLAG slFlag;
+
+        /** Overrides this instance's fields with the specified fields of {@code other}. */
+        void merge(ReaderSettings other) {
+            if (other.transmitPowerIndex != null) transmitPowerIndex = other.transmitPowerIndex;
+            if (other.rfModeTableIndex != null) rfModeTableIndex = other.rfModeTableIndex;
+            if (other.tari != null) tari = other.tari;
+            if (other.session != null) session = other.session;
+            if (other.inventoryState != null) inventoryState = other.inventoryState;
+            if (other.slFlag != null) slFlag = other.slFlag;
+        }
+
+        ReaderSettings copy() {
+            ReaderSettings copy = new ReaderSettings();
+            copy.merge(this);
+            return copy;
+        }
+
+        boolean isEmpty() {
+            return transmitPowerIndex == null && rfModeTableIndex == null && tari == null
+                    && session == null && inventoryState == null && slFlag == null;
+        }
+    }
+
+    /** Outcome of one apply. */
+    static final class ApplyResult {
+        final boolean success;
+        final String message;
+        final int fieldsChanged;
+        final long durationMs;
+
+        ApplyResult(boolean success, String message, int fieldsChanged, long durationMs) {
+            this.success = success;
+            this.message = message;
+            this.fieldsChanged = fieldsChanged;
+            this.durationMs = durationMs;
+        }
+
+        @Override
+        public String toString() {
+            return message + " (" + fieldsChanged + " changed, " + durationMs + " ms)";
+        }
+    }
+
+    private final RFIDHandler rfidHandler;
+    private final Executor executor;
+
+    /** Accumulated desired configuration. Guarded by {@code this}. */
+    private final ReaderSettings desired = new ReaderSettings();
+    /** Future shared by all changes merged since the last apply started. Guarded by {@code this}. */
+    private CompletableFuture<ApplyResult> pending;
+
+    // Cached reader state, only touched on the executor
+    private ReaderSettings known = new ReaderSettings();
+    private Antennas.AntennaRfConfig rfConfig;
+    private Antennas.SingulationControl singulationControl;
+
+    /**
+     * @param rfidHandler Handler owning the reader connection.
+     * @param executor Executor reader calls are serialized on.
+     */
+    ReaderConfigService(RFIDHandler rfidHandler, Executor executor) {
+        this.rfidHandler = rfidHandler;
+        this.executor = executor;
+    }
+
+    /**
+     * Merges changes into the desired configuration and schedules an apply.
+     * Changes submitted before the scheduled apply starts are batched into it and share its future.
+     * @param changes Settings to change.
+     * @return Future completed with the apply result.
+     */
+    CompletableFuture<ApplyResult> apply(ReaderSettings changes) {
+        synchronized (this) {
+            desired.merge(changes);
+            if (pending != null) return pending;
+            pending = new CompletableFuture<>();
+            CompletableFuture<ApplyResult> future = pending;
+            try {
+                executor.execute(this::applyPending);
+            } catch (RuntimeException e) {
+                pending = null;
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * @return A copy of the desired configuration.
+     */
+    synchronized ReaderSettings getDesired() {
+        return desired.copy();
+    }
+
+    /**
+     * Re-applies the desired configuration to a freshly connected reader.
+     * Must be called on the executor.
+     */
+    void onReaderConnected() {
+        invalidate();
+        ReaderSettings target;
+        synchronized (this) {
+            if (desired.isEmpty()) return;
+            target = desired.copy();
+        }
+        ApplyResult result = applyNow(target);
+        Log.d(TAG, "Re-applied after connect: " + result);
+    }
+
+    /** Drops the cached reader state; the next apply fetches it again. */
+    void invalidate() {
+        known = new ReaderSettings();
+        rfConfig = null;
+        singulationControl = null;
+    }
+
+    private void applyPending() {
+        CompletableFuture<ApplyResult> future;
+        ReaderSettings target;
+        synchronized (this) {
+            future = pending;
+            pending = null;
+            target = desired.copy();
+        }
+        future.complete(applyNow(target));
+    }
+
+    private ApplyResult applyNow(ReaderSettings target) {
+        long start = SystemClock.elapsedRealtime();
+        synchronized (rfidHandler) {
+            RFIDReader reader = rfidHandler.getConnectedReader();
+            if (reader == null) {
+                return new ApplyResult(false, RFIDHandler.DISCONNECTED, 0, 0);
+            }
+            int changed = 0;
+            // Upper bounds until the reader state is fetched; the progress is cleared when done
+            int rfTotal = countRfChanges(target);
+            int total = rfTotal + countSingulationChanges(target);
+            if (total > 0) rfidHandler.onReconcileProgress(0, total);
+            try {
+                if (rfChanged(target)) {
+                    if (rfConfig == null) {
+                        rfConfig = reader.Config.Antennas.getAntennaRfConfig(ANTENNA_ID);
+                        known.transmitPowerIndex = rfConfig.getTransmitPowerIndex();
+                        known.rfModeTableIndex = rfConfig.getrfModeTableIndex();
+                        known.tari = rfConfig.getTari();
+                    }
+                    int rfFields = 0;
+                    if (differs(target.transmitPowerIndex, known.transmitPowerIndex)) {
+                        rfConfig.setTransmitPowerIndex(target.transmitPowerIndex);
+                        rfFields++;
+                    }
+                    if (differs(target.rfModeTableIndex, known.rfModeTableIndex)) {
+                        rfConfig.setrfModeTableIndex(target.rfModeTableIndex);
+                        rfFields++;
+                    }
+                    if (differs(target.tari, known.tari)) {
+                        rfConfig.setTari(target.tari);
+                        rfFields++;
+                    }
+                    if (rfFields > 0) {
+                        applyRfConfig(reader);
+                        changed += rfFields;
+                    }
+                    if (total > 0) rfidHandler.onReconcileProgress(rfTotal, total);
+                }
+                if (singulationChanged(target)) {
+                    if (singulationControl == null) fetchSingulation(reader);
+                    int singulationFields = 0;
+                    if (differs(target.session, known.session)) {
+                        singulationControl.setSession(target.session);
+                        singulationFields++;
+                    }
+                    if (differs(target.inventoryState, known.inventoryState)) {
+                        singulationControl.Action.setInventoryState(target.inventoryState);
+                        singulationFields++;
+                    }
+                    if (differs(target.slFlag, known.slFlag)) {
+                        singulationControl.Action.setSLFlag(target.slFlag);
+                        singulationFields++;
+                    }
+                    if (singulationFields > 0) {
+                        applySingulation(reader);
+                        changed += singulationFields;
+                    }
+                }
+            } catch (InvalidUsageException e) {
+                Log.e(TAG, "Error applying reader settings", e);
+                invalidate();
+                return new ApplyResult(false, e.getMessage(), changed, SystemClock.elapsedRealtime() - start);
+            } catch (OperationFailureException e) {
+                Log.e(TAG, "Error applying reader settings", e);
+                invalidate();
+                return new ApplyResult(false, e.getStatusDescription(), changed, SystemClock.elapsedRealtime() - start);
+            } finally {
+                if (total > 0) rfidHandler.onReconcileProgress(0, 0);
+            }
+            return new ApplyResult(true, changed > 0 ? SETTINGS_APPLIED : NO_CHANGES, changed,
+                    SystemClock.elapsedRealtime() - start);
+        }
+    }
+
+    /**
+     * Returns the singulation settings currently on the reader, fetching them if they are not cached.
+     * Must be called on the executor.
+     * @return Session and inventory state on the reader, or null if no reader is connected or the fetch failed.
+     */
+    ReaderSettings readSingulation() {
+        synchronized (rfidHandler) {
+            RFIDReader reader = rfidHandler.getConnectedReader();
+            if (reader == null) return null;
+            if (singulationControl == null) {
+                try {
+                    fetchSingulation(reader);
+                } catch (InvalidUsageException | OperationFailureException e) {
+                    Log.e(TAG, "Error reading singulation control", e);
+                    return null;
+                }
+            }
+            ReaderSettings settings = new ReaderSettings();
+            settings.session = known.session;
+            settings.inventoryState = known.inventoryState;
+            return settings;
+        }
+    }
+
+    private void fetchSingulation(RFIDReader reader) throws InvalidUsageException, OperationFailureException {
+        singulationControl = reader.Config.Antennas.getSingulationControl(ANTENNA_ID);
+        known.session = singulationControl.getSession();
+        known.inventoryState = singulationControl.Action.getInventoryState();
+        known.slFlag = singulationControl.Action.getSLFlag();
+    }
+
+    private void applyRfConfig(RFIDReader reader) throws InvalidUsageException, OperationFailureException {
+        reader.Config.Antennas.setAntennaRfConfig(ANTENNA_ID, rfConfig);
+        known.transmitPowerIndex = rfConfig.getTransmitPowerIndex();
+        known.rfModeTableIndex = rfConfig.getrfModeTableIndex();
+        known.tari = rfConfig.getTari();
+    }
+
+    private void applySingulation(RFIDReader reader) throws InvalidUsageException, OperationFailureException {
+        reader.Config.Antennas.setSingulationControl(ANTENNA_ID, singulationControl);
+        known.session = singulationControl.getSession();
+        known.inventoryState = singulationControl.Action.getInventoryState();
+        known.slFlag = singulationControl.Action.getSLFlag();
+    }
+
+    private int countRfChanges(ReaderSettings target) {
+        return count(target.transmitPowerIndex, known.transmitPowerIndex)
+                + count(target.rfModeTableIndex, known.rfModeTableIndex)
+                + count(target.tari, known.tari);
+    }
+
+    private int countSingulationChanges(ReaderSettings target) {
+        return count(target.session, known.session)
+                + count(target.inventoryState, known.inventoryState)
+                + count(target.slFlag, known.slFlag);
+    }
+
+    private static int count(Object target, Object known) {
+        return differs(target, known) ? 1 : 0;
+    }
+
+    private boolean rfChanged(ReaderSettings target) {
+        return differs(target.transmitPowerIndex, known.transmitPowerIndex)
+                || differs(target.rfModeTableIndex, known.rfModeTableIndex)
+                || differs(target.tari, known.tari);
+    }
+
+    private boolean singulationChanged(ReaderSettings target) {
+        return differs(target.session, known.session)
+                || differs(target.inventoryState, known.inventoryState)
+                || differs(target.slFlag, known.slFlag);
+    }
+
+    /** @return True if {@code target} is specified and not known to be on the reader. */
+    private static boolean differs(Object target, Object known) {
+        return target != null && !target.equals(known);
+    }
+}
@@ -0,0 +1,70 @@
+package com.zebra.rfid.demo.sdksample;
+
+import com.zebra.rfid.api3.InvalidUsageException;
+import com.zebra.rfid.api3.OperationFailureException;
+import com.zebra.rfid.api3.RFIDReader;
+import com.zebra.rfid.api3.Readers;
+import com.zebra.rfid.api3.RfidEventsListener;
+import com.zebra.rfid.api3.TagData;
+
+import java.util.List;
+
+/**
+ * The part of the RFID API3 SDK that {@link RFIDHandler} drives: reader discovery, the
+ * connection, events and inventory. {@link ZebraReaderSdk} implements it over the SDK;
+ * tests implement it with a fake so the handler runs off the device.
+ */
+interface ReaderSdk {
+
+    /** One reader found by discovery. */
+    interface Reader {
+        /** @return Device name, e.g. RFD40+_211245201234. */
+        String getName();
+
+        String getHostName();
+
+        boolean isConnected();
+
+        void connect() throws InvalidUsageException, OperationFailureException;
+
+        void disconnect() throws InvalidUsageException, OperationFailureException;
+
+        /** Releases the reader; it cannot be connected again. */
+        void dispose() throws Exception;
+
+        /**
+         * Adds the listener and enables the handheld trigger, tag read and disconnect events.
+         * Read events carry no tag data; the listener drains {@link #getReadTags} instead.
+         */
+        void registerEvents(RfidEventsListener listener) throws InvalidUsageException, OperationFailureException;
+
+        void removeEventsListener(RfidEventsListener listener) throws InvalidUsageException, OperationFailureException;
+
+        void performInventory() throws InvalidUsageException, OperationFailureException;
+
+        void stopInventory() throws InvalidUsageException, OperationFailureException;
+
+        /**
+         * @param max Maximum number of tags to return.
+         * @return Tags in the read buffer, or null if it is empty.
+         */
+        TagData[] getReadTags(int max);
+
+        /**
+         * @return The SDK reader for configuration and tag access, or null if there is none,
+         * in which case those operations report the reader as disconnected.
+         */
+        RFIDReader getRFIDReader();
+    }
+
+    /**
+     * Reports readers that appear or disappear to the handler.
+     * @param handler Handler for reader availability events.
+     */
+    void attach(Readers.RFIDReaderEventHandler handler);
+
+    /** @return Readers currently available. */
+    List<Reader> getAvailableReaders() throws InvalidUsageException;
+
+    void dispose();
+}
@@ -0,0 +1,167 @@
+package com.zebra.rfid.demo.sdksample;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Structured reader status shown in the status line.
+ * Background threads update fields without locking; each update marks the
+ * model dirty through the registered {@link Listener} so a renderer can redraw it.
+ */
+class ReaderStatus {
+
+    enum ConnectionState { DISCONNECTED, CONNECTING, CONNECTED }
+
+    interface Listener {
+        void onStatusChanged();
+    }
+
+    private volatile ConnectionState connectionState = ConnectionState.DISCONNECTED;
+    private volatile String message = RFIDHandler.DISCONNECTED;
+    private volatile String host;
+    private volatile long connectDurationMs = -1;
+    private volatile int uniqueCount;
+    private final AtomicLong totalReads = new AtomicLong();
+    private volatile int reconcileDone;
+    private volatile int reconcileTotal;
+    private volatile boolean portalEnabled;
+    private final AtomicInteger portalIn = new AtomicInteger();
+    private final AtomicInteger portalOut = new AtomicInteger();
+    private volatile String lastDirection;
+    private volatile Listener listener;
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param state New connection state.
+     * @param message Status message shown on the first line.
+     */
+    void setConnection(ConnectionState state, String message) {
+        this.connectionState = state;
+        this.message = message;
+        if (state != ConnectionState.CONNECTED) {
+            host = null;
+            connectDurationMs = -1;
+        }
+        changed();
+    }
+
+    /**
+     * Records details of a successful connect.
+     * @param host Reader host name.
+     * @param connectDurationMs Time the connect call took.
+     */
+    void setConnected(String host, long connectDurationMs) {
+        this.host = host;
+        this.connectDurationMs = connectDurationMs;
+        changed();
+    }
+
+    void setUniqueCount(int uniqueCount) {
+        this.uniqueCount = uniqueCount;
+        changed();
+    }
+
+    /** @param reads Number of tag reads in a batch, counted towards the read rate. */
+    void addReads(int reads) {
+        totalReads.addAndGet(reads);
+        changed();
+    }
+
+    /**
+     * @param done Reader settings sent so far.
+     * @param total Reader settings being applied; zero hides the progress.
+     */
+    void setReconcileProgress(int done, int total) {
+        this.reconcileDone = done;
+        this.reconcileTotal = total;
+        changed();
+    }
+
+    /**
+     * Shows or hides the portal counters; either way they start again from zero.
+     * @param enabled True while dock-door direction detection runs.
+     */
+    void setPortalEnabled(boolean enabled) {
+        portalEnabled = enabled;
+        resetPortalCounts();
+    }
+
+    void resetPortalCounts() {
+        portalIn.set(0);
+        portalOut.set(0);
+        lastDirection = null;
+        changed();
+    }
+
+    /**
+     * Counts a direction event and keeps it as the latest one.
+     * @param epc Tag the event is about.
+     * @param direction Direction decided for the tag.
+     */
+    void addDirection(String epc, DirectionEngine.Direction direction) {
+        if (direction == DirectionEngine.Direction.IN) {
+            portalIn.incrementAndGet();
+        } else if (direction == DirectionEngine.Direction.OUT) {
+            portalOut.incrementAndGet();
+        }
+        lastDirection = direction + " " + epc;
+        changed();
+    }
+
+    ConnectionState getConnectionState() {
+        return connectionState;
+    }
+
+    String getMessage() {
+        return message;
+    }
+
+    String getHost() {
+        return host;
+    }
+
+    long getConnectDurationMs() {
+        return connectDurationMs;
+    }
+
+    int getUniqueCount() {
+        return uniqueCount;
+    }
+
+    long getTotalReads() {
+        return totalReads.get();
+    }
+
+    int getReconcileDone() {
+        return reconcileDone;
+    }
+
+    int getReconcileTotal() {
+        return reconcileTotal;
+    }
+
+    boolean isPortalEnabled() {
+        return portalEnabled;
+    }
+
+    int getPortalIn() {
+        return portalIn.get();
+    }
+
+    int getPortalOut() {
+        return portalOut.get();
+    }
+
+    /** @return Latest direction event as "DIRECTION EPC", or null if none yet. */
+    String getLastDirection() {
+        return lastDirection;
+    }
+
+    private void changed() {
+        Listener l = listener;
+        if (l != null) l.onStatusChanged();
+    }
+}
@@ -0,0 +1,711 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+
+import com.zebra.rfid.api3.LOCK_DATA_FIELD;
+import com.zebra.rfid.api3.LOCK_PRIVILEGE;
+import com.zebra.rfid.api3.MEMORY_BANK;
+import com.zebra.rfid.api3.TagData;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the reader connection, scanner session and session data across configuration changes.
+ * The activity attaches itself as {@link Ui} while it exists; everything here holds only the
+ * application context, and UI callbacks look up the attached activity when they run on the
+ * main thread, so a rotated-away activity is never referenced. The reader is released in
+ * {@link #onCleared()}, when the activity is finishing for good.
+ */
+public class ReaderViewModel extends AndroidViewModel implements RFIDHandler.ResponseHandlerInterface {
+
+    private static final String TAG = "ReaderViewModel";
+
+    private static final long SATURATION_TICK_MS = 250;
+    private static final long DIRECTION_TICK_MS = 250;
+    private static final int DIRECTION_CAPACITY = 8192;
+    private static final int DIRECTION_READS_PER_TAG = 16;
+    private static final String PREFS_NAME = "RFIDSamplePrefs";
+    private static final String PREF_DEVICE_ID = "device_id";
+    private static final String PREF_PORTAL_OUTSIDE = "portal_outside_antenna";
+    private static final String PREF_PORTAL_INSIDE = "portal_inside_antenna";
+    private static final int MAX_ANTENNA_ID = 255;
+    private static final String SYNC_DIRECTORY = "sync-queue";
+    private static final String TRACE_DIRECTORY = "traces";
+    private static final String TRACE_PREFIX = "trace-";
+    private static final String TRACE_SUFFIX = ".rftr";
+    private static final double TRACE_REPLAY_SPEED = 1;
+    /** 96-bit TID: class, mask designer, model and serial. */
+    private static final int TID_WORDS = 6;
+    private static final long NO_PASSWORD = 0;
+
+    /** UI bound to the model; all methods are called on the main thread. */
+    interface Ui {
+        void onConnectionChanged(boolean connected);
+
+        void onInventoryChanged(boolean running);
+
+        void onScanButtonEnabled(boolean enabled);
+
+        /** New tags were added to {@link #getTagIndex()}. */
+        void onTagsChanged();
+    }
+
+    private final RFIDHandler rfidHandler;
+    /** Structured status drawn by the activity's status renderer; updated from any thread. */
+    private final ReaderStatus readerStatus = new ReaderStatus();
+    /** Merged barcode stream fed by DataWedge and the scanner SDK. */
+    private final BarcodeStream barcodeStream = new BarcodeStream();
+    /** Unique tags of the current session, indexed for search. */
+    private final TagIndex tagIndex = new TagIndex();
+    /** Decides when the tag population has saturated so inventory can stop. */
+    private final SaturationDetector saturationDetector = new SaturationDetector();
+    /** Records time-to-first-frame and time-to-ready for this launch. */
+    private final StartupTimer startupTimer = new StartupTimer();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable saturationTick = new Runnable() {
+        @Override
+        public void run() {
+            handleSaturation(saturationDetector.onTick(SystemClock.elapsedRealtime()));
+            mainHandler.postDelayed(this, SATURATION_TICK_MS);
+        }
+    };
+
+    /** Dock-door direction detection; null until portal rules are set. */
+    private volatile DirectionEngine directionEngine;
+    private final Runnable directionTick = new Runnable() {
+        @Override
+        public void run() {
+            DirectionEngine engine = directionEngine;
+            if (engine == null) return;
+            engine.advance(SystemClock.elapsedRealtime());
+            mainHandler.postDelayed(this, DIRECTION_TICK_MS);
+        }
+    };
+
+    /** Set while a tag list refresh is posted, so bursts of batches refresh the list once. */
+    private final AtomicBoolean tagsChangedPending = new AtomicBoolean();
+    private final Runnable tagsChanged = () -> {
+        tagsChangedPending.set(false);
+        Ui ui = this.ui;
+        if (ui != null) ui.onTagsChanged();
+    };
+
+    /**
+     * Target for trace replays: feeds the tag pipeline, barcode stream and buttons like live
+     * events, but replayed triggers never start or stop the reader.
+     */
+    private final RFIDHandler.ResponseHandlerInterface replaySink = new RFIDHandler.ResponseHandlerInterface() {
+        @Override
+        public void handleTagdata(TagData[] tagData) {
+            ReaderViewModel.this.handleTagdata(tagData);
+        }
+
+        @Override
+        public void handleTriggerPress(boolean pressed) {
+            onTrigger(pressed);
+        }
+
+        @Override
+        public void barcodeData(String val) {
+            ReaderViewModel.this.barcodeData(val);
+        }
+
+        @Override
+        public void sendToast(String val) {
+            ReaderViewModel.this.sendToast(val);
+        }
+    };
+
+    /** Access operations submitted from the UI that have not completed yet. */
+    private final AtomicInteger pendingAccessOps = new AtomicInteger();
+
+    /** Executor for setup work that must not run on the main thread. */
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+
+    /** Outbound queue for inventory results; created in the background on first start. */
+    private volatile SyncQueue syncQueue;
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    private volatile Ui ui;
+    private volatile boolean inventoryRunning;
+    private volatile boolean scanButtonEnabled;
+    private boolean readerInitialized;
+    private boolean syncQueueStarted;
+    /** Set once the portal is configured from the UI, so restoring saved antennas cannot override it. */
+    private boolean portalConfigured;
+
+    public ReaderViewModel(@NonNull Application application) {
+        this(application, new RFIDHandler());
+    }
+
+    /**
+     * @param application Application the model is scoped to.
+     * @param rfidHandler Handler for the reader and scanner; tests pass one built over fake SDKs.
+     */
+    ReaderViewModel(@NonNull Application application, RFIDHandler rfidHandler) {
+        super(application);
+        this.rfidHandler = rfidHandler;
+        // Only suggest; stopping on its own would change the manual start/stop behaviour
+        saturationDetector.setMode(SaturationDetector.Mode.SUGGEST);
+    }
+
+    /**
+     * Binds the UI and brings it up to date with the current state. Main thread only.
+     * @param ui The UI to bind; replaces any previous one.
+     */
+    void attach(Ui ui) {
+        this.ui = ui;
+        ui.onConnectionChanged(readerStatus.getConnectionState() == ReaderStatus.ConnectionState.CONNECTED);
+        ui.onInventoryChanged(inventoryRunning);
+        ui.onScanButtonEnabled(scanButtonEnabled);
+        ui.onTagsChanged();
+    }
+
+    /**
+     * Unbinds the UI if it is still the bound one. Main thread only.
+     * @param ui The UI to unbind.
+     */
+    void detach(Ui ui) {
+        if (this.ui == ui) this.ui = null;
+    }
+
+    /** Creates the reader handler once; later calls, e.g. after a rotation, do nothing. Main thread only. */
+    void initReader() {
+        if (readerInitialized) return;
+        readerInitialized = true;
+        rfidHandler.onCreate(this);
+        rfidHandler.getAccessEngine().setResultListener(this::onAccessResult);
+        restorePortal();
+    }
+
+    /** Connects if the reader is not connected; cheap when it already is. */
+    void onResume() {
+        if (readerInitialized) rfidHandler.onResume();
+    }
+
+    /** Releases the reader while the app is in the background; not called for configuration changes. */
+    void onPause() {
+        if (readerInitialized) rfidHandler.onPause();
+    }
+
+    @Override
+    protected void onCleared() {
+        ui = null;
+        stopSaturationTracking();
+        setPortalRules(null);
+        mainHandler.removeCallbacks(tagsChanged);
+        readerStatus.setListener(null);
+        barcodeStream.setListener(null);
+        barcodeStream.clear();
+        rfidHandler.onDestroy();
+        // Runs after the sync queue setup, so the queue and callback exist if they were created
+        backgroundExecutor.execute(() -> {
+            ConnectivityManager connectivityManager = getApplication().getSystemService(ConnectivityManager.class);
+            if (connectivityManager != null && networkCallback != null) {
+                connectivityManager.unregisterNetworkCallback(networkCallback);
+            }
+            SyncQueue queue = syncQueue;
+            if (queue != null) queue.shutdown();
+        });
+        backgroundExecutor.shutdown();
+    }
+
+    RFIDHandler getRfidHandler() {
+        return rfidHandler;
+    }
+
+    /**
+     * @return The status model shown in the status line.
+     */
+    ReaderStatus getReaderStatus() {
+        return readerStatus;
+    }
+
+    /**
+     * @return The merged barcode stream, for publishers such as {@link ScannerHandler}.
+     */
+    BarcodeStream getBarcodeStream() {
+        return barcodeStream;
+    }
+
+    TagIndex getTagIndex() {
+        return tagIndex;
+    }
+
+    StartupTimer getStartupTimer() {
+        return startupTimer;
+    }
+
+    boolean isInventoryRunning() {
+        return inventoryRunning;
+    }
+
+    /** @return True while reader and scanner events are being recorded to a trace. */
+    boolean isTraceRecording() {
+        return rfidHandler.getTraceRecorder().isRecording();
+    }
+
+    /**
+     * Starts recording reader and scanner events to a new trace file, or stops and saves the current one.
+     * Traces go to the app's external files directory so they can be pulled and attached to bug reports.
+     * @param record True to start a new trace, false to stop.
+     */
+    void setTraceRecording(boolean record) {
+        TraceRecorder recorder = rfidHandler.getTraceRecorder();
+        backgroundExecutor.execute(() -> {
+            if (!record) {
+                recorder.stop();
+                sendToast("Trace saved");
+                return;
+            }
+            File directory = traceDirectory();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                sendToast("Cannot create " + directory);
+                return;
+            }
+            File file = new File(directory, TRACE_PREFIX + System.currentTimeMillis() + TRACE_SUFFIX);
+            try {
+                recorder.start(file);
+                sendToast("Recording trace to " + file.getName());
+            } catch (IOException e) {
+                Log.e(TAG, "Error starting trace", e);
+                sendToast("Cannot record trace: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Replays the newest trace at recorded speed through the tag pipeline; the reader must be disconnected. */
+    void replayLatestTrace() {
+        backgroundExecutor.execute(() -> {
+            if (isTraceRecording()) {
+                sendToast("Stop recording before replaying");
+                return;
+            }
+            File latest = null;
+            File[] traces = traceDirectory().listFiles((dir, name) -> name.endsWith(TRACE_SUFFIX));
+            if (traces != null) {
+                for (File trace : traces) {
+                    if (latest == null || trace.lastModified() > latest.lastModified()) latest = trace;
+                }
+            }
+            if (latest == null) {
+                sendToast("No trace recorded yet");
+                return;
+            }
+            rfidHandler.replayTrace(latest, TRACE_REPLAY_SPEED, replaySink);
+        });
+    }
+
+    private File traceDirectory() {
+        File base = getApplication().getExternalFilesDir(null);
+        return new File(base != null ? base : getApplication().getFilesDir(), TRACE_DIRECTORY);
+    }
+
+    /**
+     * Reads the TID bank of the given tags in batched access rounds.
+     * @param epcs Tags to read.
+     */
+    void readTid(List<String> epcs) {
+        List<TagAccessEngine.AccessOp> ops = new ArrayList<>(epcs.size());
+        for (String epc : epcs) {
+            ops.add(TagAccessEngine.AccessOp.read(epc, MEMORY_BANK.MEMORY_BANK_TID, 0, TID_WORDS, NO_PASSWORD));
+        }
+        submitAccessOps(ops);
+    }
+
+    /**
+     * Writes the same data at the start of each tag's user memory, optionally locking it afterwards.
+     * @param epcs Tags to encode.
+     * @param hexData Data to write as whole hex words.
+     * @param lock True to also lock user memory against reads and writes.
+     * @throws IllegalArgumentException If the data is not whole hex words; nothing is queued then.
+     */
+    void encodeUserMemory(List<String> epcs, String hexData, boolean lock) {
+        List<TagAccessEngine.AccessOp> ops = new ArrayList<>(epcs.size() * 2);
+        for (String epc : epcs) {
+            ops.add(TagAccessEngine.AccessOp.write(epc, MEMORY_BANK.MEMORY_BANK_USER, 0, hexData, NO_PASSWORD));
+            if (lock) {
+                ops.add(TagAccessEngine.AccessOp.lock(epc, LOCK_DATA_FIELD.LOCK_USER_MEMORY,
+                        LOCK_PRIVILEGE.LOCK_PRIVILEGE_READ_WRITE, NO_PASSWORD));
+            }
+        }
+        submitAccessOps(ops);
+    }
+
+    private void submitAccessOps(List<TagAccessEngine.AccessOp> ops) {
+        if (!readerInitialized || ops.isEmpty()) return;
+        pendingAccessOps.addAndGet(ops.size());
+        rfidHandler.getAccessEngine().submit(ops);
+    }
+
+    /** Logs each result and reports the engine counters once everything submitted has completed. */
+    private void onAccessResult(TagAccessEngine.AccessResult result) {
+        if (result.success) {
+            Log.i(TAG, result.op.type + " " + result.op.epc + " ok in " + result.latencyMs + " ms after " + result.queueMs + " ms queued"
+                    + (result.memoryData != null ? ": " + result.memoryData : ""));
+        }
+        if (pendingAccessOps.decrementAndGet() == 0) {
+            sendToast(rfidHandler.getAccessEngine().getStats().toString());
+        }
+    }
+
+    /**
+     * Enables dock-door direction detection, or disables it. Events are counted in the
+     * status line. Main thread only.
+     * @param rules Antenna zones and decision rules, or null to stop detection.
+     */
+    void setPortalRules(DirectionEngine.Rules rules) {
+        mainHandler.removeCallbacks(directionTick);
+        DirectionEngine previous = directionEngine;
+        if (previous != null) Log.i(TAG, "Direction engine stopped: " + previous.getStats());
+        readerStatus.setPortalEnabled(rules != null);
+        if (rules == null) {
+            directionEngine = null;
+            return;
+        }
+        directionEngine = new DirectionEngine(rules, DIRECTION_CAPACITY, DIRECTION_READS_PER_TAG,
+                (epc, direction, timeMs, reads) -> {
+                    Log.i(TAG, direction + " " + epc + " (" + reads + " reads)");
+                    readerStatus.addDirection(epc, direction);
+                });
+        Log.i(TAG, "Direction engine started: " + directionEngine.getStats());
+        mainHandler.postDelayed(directionTick, DIRECTION_TICK_MS);
+    }
+
+    /**
+     * Turns the reader into a dock-door portal and remembers the antennas for the next launch.
+     * Main thread only.
+     * @param outsideAntenna Antenna facing the outside of the door.
+     * @param insideAntenna Antenna facing the inside of the door.
+     * @throws IllegalArgumentException If an antenna id is out of range or both are the same.
+     */
+    void enablePortal(int outsideAntenna, int insideAntenna) {
+        if (outsideAntenna < 1 || outsideAntenna > MAX_ANTENNA_ID
+                || insideAntenna < 1 || insideAntenna > MAX_ANTENNA_ID) {
+            throw new IllegalArgumentException("Antennas must be 1 to " + MAX_ANTENNA_ID);
+        }
+        if (outsideAntenna == insideAntenna) {
+            throw new IllegalArgumentException("Outside and inside need different antennas");
+        }
+        portalConfigured = true;
+        setPortalRules(portalRules(outsideAntenna, insideAntenna));
+        savePortal(outsideAntenna, insideAntenna);
+    }
+
+    /** Stops direction detection and forgets the portal antennas. Main thread only. */
+    void disablePortal() {
+        portalConfigured = true;
+        setPortalRules(null);
+        savePortal(0, 0);
+    }
+
+    /**
+     * @return Outside and inside antenna of the portal, or null when detection is off.
+     */
+    int[] getPortalAntennas() {
+        DirectionEngine engine = directionEngine;
+        if (engine == null) return null;
+        int[] antennas = new int[2];
+        for (int antennaId = 1; antennaId <= MAX_ANTENNA_ID; antennaId++) {
+            byte zone = engine.getRules().zoneByAntenna[antennaId];
+            if (zone == DirectionEngine.ZONE_OUTSIDE) antennas[0] = antennaId;
+            if (zone == DirectionEngine.ZONE_INSIDE) antennas[1] = antennaId;
+        }
+        return antennas;
+    }
+
+    private static DirectionEngine.Rules portalRules(int outsideAntenna, int insideAntenna) {
+        return new DirectionEngine.Rules()
+                .setZone(outsideAntenna, DirectionEngine.ZONE_OUTSIDE)
+                .setZone(insideAntenna, DirectionEngine.ZONE_INSIDE);
+    }
+
+    /** Reads the saved portal antennas in the background and re-enables detection if set. */
+    private void restorePortal() {
+        final Context appContext = getApplication();
+        backgroundExecutor.execute(() -> {
+            SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            int outside = prefs.getInt(PREF_PORTAL_OUTSIDE, 0);
+            int inside = prefs.getInt(PREF_PORTAL_INSIDE, 0);
+            if (outside == 0 || inside == 0) return;
+            mainHandler.post(() -> {
+                if (!portalConfigured) setPortalRules(portalRules(outside, inside));
+            });
+        });
+    }
+
+    private void savePortal(int outsideAntenna, int insideAntenna) {
+        final Context appContext = getApplication();
+        backgroundExecutor.execute(() -> appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putInt(PREF_PORTAL_OUTSIDE, outsideAntenna)
+                .putInt(PREF_PORTAL_INSIDE, insideAntenna)
+                .apply());
+    }
+
+    /**
+     * @return The direction engine, or null when detection is off.
+     */
+    DirectionEngine getDirectionEngine() {
+        return directionEngine;
+    }
+
+    /**
+     * Creates the sync queue in the background, resumes any batches left by a previous run
+     * and follows connectivity so uploads retry as soon as the network returns.
+     * Only the first call has an effect. Main thread only.
+     * @param endpoint Upload endpoint; empty disables syncing, since nothing would ever drain the queue.
+     */
+    void startSyncQueue(String endpoint) {
+        if (syncQueueStarted) return;
+        syncQueueStarted = true;
+        if (endpoint == null || endpoint.isEmpty()) {
+            Log.i(TAG, "No sync endpoint configured, inventory results are not queued");
+            return;
+        }
+        final Context appContext = getApplication();
+        backgroundExecutor.execute(() -> {
+            SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            String deviceId = prefs.getString(PREF_DEVICE_ID, null);
+            if (deviceId == null) {
+                deviceId = UUID.randomUUID().toString();
+                prefs.edit().putString(PREF_DEVICE_ID, deviceId).apply();
+            }
+            URL url;
+            try {
+                url = new URL(endpoint);
+            } catch (MalformedURLException e) {
+                Log.e(TAG, "Invalid sync endpoint: " + endpoint, e);
+                return;
+            }
+            SyncQueue queue = new SyncQueue(new File(appContext.getFilesDir(), SYNC_DIRECTORY), url, deviceId);
+            queue.start();
+            syncQueue = queue;
+
+            ConnectivityManager connectivityManager = appContext.getSystemService(ConnectivityManager.class);
+            if (connectivityManager != null) {
+                networkCallback = new ConnectivityManager.NetworkCallback() {
+                    @Override
+                    public void onAvailable(Network network) {
+                        queue.setOnline(true);
+                    }
+
+                    @Override
+                    public void onLost(Network network) {
+                        queue.setOnline(false);
+                    }
+                };
+                connectivityManager.registerDefaultNetworkCallback(networkCallback);
+            }
+        });
+    }
+
+    /** Seals the pending sync delta, e.g. when an inventory session ends. */
+    private void flushSyncQueue() {
+        SyncQueue queue = syncQueue;
+        if (queue != null) queue.flush();
+    }
+
+    /**
+     * Updates the reader status with appropriate colors.
+     * @param status The status message to display.
+     * @param isConnected Whether the reader is connected.
+     */
+    void updateReaderStatus(String status, boolean isConnected) {
+        updateReaderStatus(status, isConnected ? ReaderStatus.ConnectionState.CONNECTED
+                : ReaderStatus.ConnectionState.DISCONNECTED);
+    }
+
+    /**
+     * Updates the reader status model; the status line is redrawn on the next frame.
+     * @param status The status message to display.
+     * @param state The reader connection state.
+     */
+    void updateReaderStatus(String status, ReaderStatus.ConnectionState state) {
+        boolean isConnected = state == ReaderStatus.ConnectionState.CONNECTED;
+        if (isConnected) {
+            startupTimer.mark(StartupTimer.PHASE_READY);
+        }
+        boolean buttonsChanged = readerStatus.getConnectionState() != state;
+        readerStatus.setConnection(state, status);
+        if (!buttonsChanged) return;
+        if (!isConnected) inventoryRunning = false;
+        mainHandler.post(() -> {
+            Ui ui = this.ui;
+            if (ui != null) ui.onConnectionChanged(isConnected);
+        });
+    }
+
+    /**
+     * Enables or disables the scan button.
+     * @param enabled True to enable the button.
+     */
+    void setScanButtonEnabled(boolean enabled) {
+        scanButtonEnabled = enabled;
+        mainHandler.post(() -> {
+            Ui ui = this.ui;
+            if (ui != null) ui.onScanButtonEnabled(enabled);
+        });
+    }
+
+    private void setInventoryRunning(boolean running) {
+        inventoryRunning = running;
+        mainHandler.post(() -> {
+            Ui ui = this.ui;
+            if (ui != null) ui.onInventoryChanged(running);
+        });
+    }
+
+    void startInventory() {
+        setInventoryRunning(true);
+        clearTagData();
+        startSaturationTracking();
+        rfidHandler.performInventory();
+    }
+
+    void stopInventory() {
+        setInventoryRunning(false);
+        stopSaturationTracking();
+        flushSyncQueue();
+        rfidHandler.stopInventory();
+    }
+
+    private void startSaturationTracking() {
+        saturationDetector.reset(SystemClock.elapsedRealtime());
+        mainHandler.removeCallbacks(saturationTick);
+        mainHandler.postDelayed(saturationTick, SATURATION_TICK_MS);
+    }
+
+    private void stopSaturationTracking() {
+        mainHandler.removeCallbacks(saturationTick);
+    }
+
+    /**
+     * Acts on a saturation decision. Called from the tag batch executor and the main thread.
+     * @param decision Decision returned by the detector.
+     */
+    private void handleSaturation(SaturationDetector.Decision decision) {
+        switch (decision) {
+            case SUGGEST_STOP:
+                sendToast("Tag count complete: " + readerStatus.getUniqueCount() + " tags");
+                break;
+            case STRAGGLER_PASS:
+                rfidHandler.startStragglerPass();
+                break;
+            case STOP:
+                mainHandler.post(this::stopSaturationTracking);
+                setInventoryRunning(false);
+                rfidHandler.autoStopInventory();
+                flushSyncQueue();
+                sendToast("Inventory complete: " + readerStatus.getUniqueCount() + " tags");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void clearTagData() {
+        runOnMainThread(() -> {
+            tagIndex.clear();
+            readerStatus.setUniqueCount(0);
+            Ui ui = this.ui;
+            if (ui != null) ui.onTagsChanged();
+        });
+        TagSession.get().reset();
+        SyncQueue queue = syncQueue;
+        if (queue != null) queue.resetSession();
+        DirectionEngine engine = directionEngine;
+        if (engine != null) {
+            engine.clear();
+            readerStatus.resetPortalCounts();
+        }
+    }
+
+    /** Runs now when called on the main thread, otherwise posts to it. */
+    private void runOnMainThread(Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mainHandler.post(action);
+        }
+    }
+
+    @Override
+    public void handleTagdata(TagData[] tagData) {
+        if (tagData == null || tagData.length == 0) return;
+        readerStatus.addReads(tagData.length);
+        TagSession.get().ingest(tagData, SystemClock.elapsedRealtime());
+        SyncQueue queue = syncQueue;
+        if (queue != null) queue.onTagBatch(tagData);
+
+        DirectionEngine engine = directionEngine;
+        if (engine != null) engine.onBatch(tagData, SystemClock.elapsedRealtime());
+
+        int newTags = tagIndex.add(tagData);
+
+        SaturationDetector.Decision decision =
+                saturationDetector.onBatch(SystemClock.elapsedRealtime(), tagData.length, newTags);
+
+        if (newTags > 0) {
+            readerStatus.setUniqueCount(tagIndex.size());
+            if (tagsChangedPending.compareAndSet(false, true)) {
+                mainHandler.post(tagsChanged);
+            }
+        }
+        handleSaturation(decision);
+    }
+
+    @Override
+    public void handleTriggerPress(boolean pressed) {
+        onTrigger(pressed);
+        if (pressed) {
+            rfidHandler.performInventory();
+        } else {
+            rfidHandler.stopInventory();
+        }
+    }
+
+    /** Session and UI side of a trigger press, shared by live and replayed triggers. */
+    private void onTrigger(boolean pressed) {
+        setInventoryRunning(pressed);
+        if (pressed) {
+            clearTagData();
+            mainHandler.post(this::startSaturationTracking);
+        } else {
+            mainHandler.post(this::stopSaturationTracking);
+            flushSyncQueue();
+        }
+    }
+
+    @Override
+    public void barcodeData(String val) {
+        barcodeStream.publish(BarcodeEvent.Source.SCANNER_SDK, val, null, null, -1, null);
+    }
+
+    @Override
+    public void sendToast(String val) {
+        mainHandler.post(() -> Toast.makeText(getApplication(), val, Toast.LENGTH_SHORT).show());
+    }
+}
@@ -0,0 +1,153 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.util.Log;
+
+/**
+ * Online estimator of the new-unique-tag discovery curve for one inventory round.
+ * Each batch updates an exponentially weighted estimate of the probability that a
+ * read is a tag not seen before (a Good-Turing style coverage estimate); once
+ * estimated coverage reaches the configured confidence and no new tag has been
+ * seen for the quiet window, the population is considered saturated. When the
+ * reader stops reporting altogether, ticks count each silent interval as an empty
+ * batch, so coverage still rises and the round can end.
+ * Updates are O(1) per batch regardless of population size.
+ */
+class SaturationDetector {
+
+    private static final String TAG = "SaturationDetector";
+
+    enum Mode { OFF, SUGGEST, AUTO_STOP }
+
+    enum Decision { CONTINUE, SUGGEST_STOP, STRAGGLER_PASS, STOP }
+
+    private static final double DEFAULT_CONFIDENCE = 0.99;
+    private static final long DEFAULT_MIN_QUIET_MS = 1000;
+    private static final long DEFAULT_MIN_DURATION_MS = 2000;
+    private static final double EWMA_ALPHA = 0.2;
+    /** Silence equivalent to one batch without new tags. */
+    private static final long SILENT_BATCH_MS = 250;
+
+    private volatile Mode mode = Mode.OFF;
+    private volatile double confidence = DEFAULT_CONFIDENCE;
+    private volatile long minQuietMs = DEFAULT_MIN_QUIET_MS;
+    private volatile long minDurationMs = DEFAULT_MIN_DURATION_MS;
+    private volatile boolean stragglerPassEnabled;
+
+    private long roundStartMs;
+    private long lastNewMs;
+    /** Time the estimate was last moved by a batch or by silence. */
+    private long lastUpdateMs;
+    private long reads;
+    private int unique;
+    /** Estimated probability that the next read is a new tag. */
+    private double newTagProbability;
+    private boolean stragglerPassDone;
+    private boolean decided;
+
+    void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @param confidence Required estimated coverage, between 0 and 1 (e.g. 0.99).
+     */
+    void setConfidence(double confidence) {
+        this.confidence = Math.min(0.9999, Math.max(0.5, confidence));
+    }
+
+    void setMinQuietMs(long minQuietMs) {
+        this.minQuietMs = minQuietMs;
+    }
+
+    void setMinDurationMs(long minDurationMs) {
+        this.minDurationMs = minDurationMs;
+    }
+
+    /**
+     * @param enabled Whether to run one extra pass with a different session/target before stopping.
+     */
+    void setStragglerPassEnabled(boolean enabled) {
+        this.stragglerPassEnabled = enabled;
+    }
+
+    /**
+     * Starts a new inventory round.
+     * @param nowMs Current time in milliseconds.
+     */
+    synchronized void reset(long nowMs) {
+        roundStartMs = nowMs;
+        lastNewMs = nowMs;
+        lastUpdateMs = nowMs;
+        reads = 0;
+        unique = 0;
+        newTagProbability = 1;
+        stragglerPassDone = false;
+        decided = false;
+    }
+
+    /**
+     * Updates the estimate with a batch of reads.
+     * @param nowMs Current time in milliseconds.
+     * @param batchReads Reads in the batch.
+     * @param newUnique Tags in the batch not seen before in this round.
+     * @return What the caller should do; anything but CONTINUE is returned once per round or pass.
+     */
+    synchronized Decision onBatch(long nowMs, int batchReads, int newUnique) {
+        if (batchReads > 0) {
+            reads += batchReads;
+            unique += newUnique;
+            double batchProbability = (double) newUnique / batchReads;
+            newTagProbability += EWMA_ALPHA * (batchProbability - newTagProbability);
+            lastUpdateMs = nowMs;
+        }
+        if (newUnique > 0) lastNewMs = nowMs;
+        return evaluate(nowMs);
+    }
+
+    /**
+     * Re-evaluates without new reads, so silence is noticed when the reader stops reporting.
+     * @param nowMs Current time in milliseconds.
+     */
+    synchronized Decision onTick(long nowMs) {
+        long silentBatches = (nowMs - lastUpdateMs) / SILENT_BATCH_MS;
+        if (silentBatches > 0) {
+            // Each silent interval is an empty batch: the EWMA moves towards zero new tags
+            newTagProbability *= Math.pow(1 - EWMA_ALPHA, silentBatches);
+            lastUpdateMs += silentBatches * SILENT_BATCH_MS;
+        }
+        return evaluate(nowMs);
+    }
+
+    private Decision evaluate(long nowMs) {
+        if (mode == Mode.OFF || decided || unique == 0) return Decision.CONTINUE;
+        long elapsed = nowMs - roundStartMs;
+        long quiet = nowMs - lastNewMs;
+        double coverage = 1 - newTagProbability;
+        if (elapsed < minDurationMs || quiet < minQuietMs || coverage < confidence) {
+            return Decision.CONTINUE;
+        }
+
+        Decision decision;
+        if (mode == Mode.SUGGEST) {
+            decision = Decision.SUGGEST_STOP;
+            decided = true;
+        } else if (stragglerPassEnabled && !stragglerPassDone) {
+            decision = Decision.STRAGGLER_PASS;
+            stragglerPassDone = true;
+            // Give the straggler pass its own window; the coverage estimate carries over
+            // because tags already read stay quiet and the pass may report few batches
+            roundStartMs = nowMs;
+            lastNewMs = nowMs;
+        } else {
+            decision = Decision.STOP;
+            decided = true;
+        }
+        Log.i(TAG, decision + " after " + elapsed + " ms: reads=" + reads + " unique=" + unique
+                + " coverage=" + Math.round(coverage * 10000) / 100.0 + "% quiet=" + quiet + " ms");
+        return decision;
+    }
+}
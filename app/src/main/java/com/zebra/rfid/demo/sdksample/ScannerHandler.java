@@ -10,10 +10,12 @@ import com.zebra.scannercontrol.IDcsSdkApiDelegate;
  */
 public class ScannerHandler implements IDcsSdkApiDelegate {
     private static final String TAG = "ScannerHandler";
-    private final MainActivity context;
+    private final ReaderViewModel context;
+    private final TraceRecorder traceRecorder;
 
-    public ScannerHandler(MainActivity context) {
+    public ScannerHandler(ReaderViewModel context, TraceRecorder traceRecorder) {
         this.context = context;
+        this.traceRecorder = traceRecorder;
     }
 
     @Override
@@ -49,8 +51,11 @@ public class ScannerHandler implements IDcsSdkApiDelegate {
     @Override
     public void dcssdkEventBarcode(byte[] barcodeData, int barcodeType, int fromScannerID) {
         String s = new String(barcodeData);
+        if (traceRecorder != null) {
+            traceRecorder.recordBarcode(barcodeData, barcodeType);
+        }
         if (context != null) {
-            context.barcodeData(s);
+            context.getBarcodeStream().publish(BarcodeEvent.Source.SCANNER_SDK, s, barcodeData, null, barcodeType, null);
         }
         Log.d(TAG, "Barcode scanned: " + s);
     }
@@ -0,0 +1,42 @@
+package com.zebra.rfid.demo.sdksample;
+
+import com.zebra.scannercontrol.DCSSDKDefs;
+import com.zebra.scannercontrol.IDcsSdkApiDelegate;
+
+import java.util.List;
+
+/**
+ * The part of the Scanner Control SDK that {@link RFIDHandler} drives: the scanner list,
+ * communication sessions and commands. {@link ZebraScannerSdk} implements it over the SDK;
+ * tests implement it with a fake so the handler runs off the device.
+ */
+interface ScannerSdk {
+
+    /** A scanner from the available list. */
+    final class ScannerInfo {
+        final int id;
+        final String name;
+
+        ScannerInfo(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Enables the USB and Bluetooth transports and subscribes the delegate to scanner
+     * appearance, session and barcode events.
+     * @param delegate Receives scanner events.
+     */
+    void start(IDcsSdkApiDelegate delegate);
+
+    /** @return Scanners currently available; a new list on every call. */
+    List<ScannerInfo> getAvailableScanners();
+
+    DCSSDKDefs.DCSSDK_RESULT establishSession(int scannerId);
+
+    DCSSDKDefs.DCSSDK_RESULT terminateSession(int scannerId);
+
+    DCSSDKDefs.DCSSDK_RESULT executeCommand(DCSSDKDefs.DCSSDK_COMMAND_OPCODE opCode, String inXml,
+                                           StringBuilder outXml, int scannerId);
+}
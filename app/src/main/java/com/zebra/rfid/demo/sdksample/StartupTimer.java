@@ -0,0 +1,56 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records per-phase startup timings relative to when the timer was constructed, which is
+ * when the view model is first created in the activity's onCreate.
+ * Phases are recorded once; later marks of the same phase are ignored so
+ * time-to-first-frame and time-to-ready reflect the cold start only.
+ */
+class StartupTimer {
+
+    private static final String TAG = "StartupTimer";
+
+    static final String PHASE_CREATE = "create";
+    static final String PHASE_CONTENT_VIEW = "contentView";
+    static final String PHASE_FIRST_FRAME = "firstFrame";
+    static final String PHASE_DATAWEDGE = "dataWedgeProfile";
+    static final String PHASE_READY = "readerReady";
+
+    private final long startMs = SystemClock.elapsedRealtime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    /**
+     * Records the elapsed time for a phase and logs it.
+     * @param phase Name of the phase.
+     */
+    synchronized void mark(String phase) {
+        if (phases.containsKey(phase)) return;
+        long elapsed = SystemClock.elapsedRealtime() - startMs;
+        phases.put(phase, elapsed);
+        Log.i(TAG, phase + " +" + elapsed + " ms");
+    }
+
+    /**
+     * @param phase Name of the phase.
+     * @return Elapsed milliseconds since construction, or -1 if the phase was not reached.
+     */
+    synchronized long get(String phase) {
+        Long elapsed = phases.get(phase);
+        return elapsed != null ? elapsed : -1;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("Startup:");
+        for (Map.Entry<String, Long> entry : phases.entrySet()) {
+            sb.append(' ').append(entry.getKey()).append('=').append(entry.getValue()).append("ms");
+        }
+        return sb.toString();
+    }
+}
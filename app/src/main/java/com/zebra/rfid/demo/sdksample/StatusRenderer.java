@@ -0,0 +1,135 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.widget.TextView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Draws {@link ReaderStatus} into the status TextView at most once per frame.
+ * Text is built in reused StringBuilders and only pushed to the view when it changed, through a
+ * reused char array: {@code setText(CharSequence)} would copy the builder into a new String.
+ */
+class StatusRenderer implements ReaderStatus.Listener, Choreographer.FrameCallback {
+
+    private static final String UNIQUE_TAGS = "Unique Tags: ";
+    private static final String READ_RATE = "  Rate: ";
+    private static final String PER_SECOND = "/s";
+    private static final String RECONCILE = "Reconciled: ";
+    private static final String PORTAL_IN = "Portal  In: ";
+    private static final String PORTAL_OUT = "  Out: ";
+    private static final String PORTAL_LAST = "  Last: ";
+    private static final long RATE_WINDOW_MS = 1000;
+
+    private final ReaderStatus status;
+    private final TextView textView;
+    private final int connectedColor;
+    private final int disconnectedColor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean frameRequested = new AtomicBoolean();
+    private final Runnable requestFrame = () -> Choreographer.getInstance().postFrameCallback(this);
+    private final Runnable refreshRate = this::onStatusChanged;
+
+    private StringBuilder current = new StringBuilder(128);
+    private StringBuilder previous = new StringBuilder(128);
+    /** Text shown by the view; the view keeps this array, so it only changes right before setText. */
+    private char[] shown = new char[128];
+    private ReaderStatus.ConnectionState renderedState;
+    private long rateWindowStartMs;
+    private long rateWindowStartReads;
+    private long readRate;
+
+    StatusRenderer(ReaderStatus status, TextView textView, int connectedColor, int disconnectedColor) {
+        this.status = status;
+        this.textView = textView;
+        this.connectedColor = connectedColor;
+        this.disconnectedColor = disconnectedColor;
+    }
+
+    /** Called from any thread; schedules a single redraw on the next frame. */
+    @Override
+    public void onStatusChanged() {
+        if (frameRequested.compareAndSet(false, true)) {
+            mainHandler.post(requestFrame);
+        }
+    }
+
+    /** Stops pending redraws. Must be called on the main thread. */
+    void detach() {
+        mainHandler.removeCallbacks(requestFrame);
+        mainHandler.removeCallbacks(refreshRate);
+        Choreographer.getInstance().removeFrameCallback(this);
+        frameRequested.set(false);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameRequested.set(false);
+        render();
+    }
+
+    private void render() {
+        ReaderStatus.ConnectionState state = status.getConnectionState();
+        updateReadRate();
+
+        current.setLength(0);
+        current.append(status.getMessage());
+        if (state == ReaderStatus.ConnectionState.CONNECTED) {
+            int unique = status.getUniqueCount();
+            if (unique > 0) {
+                current.append('\n').append(UNIQUE_TAGS).append(unique)
+                        .append(READ_RATE).append(readRate).append(PER_SECOND);
+            }
+            int total = status.getReconcileTotal();
+            if (total > 0) {
+                current.append('\n').append(RECONCILE).append(status.getReconcileDone()).append('/').append(total);
+            }
+        }
+        // Outside the connected block: replayed traces drive the portal while disconnected
+        if (status.isPortalEnabled()) {
+            current.append('\n').append(PORTAL_IN).append(status.getPortalIn())
+                    .append(PORTAL_OUT).append(status.getPortalOut());
+            String last = status.getLastDirection();
+            if (last != null) current.append(PORTAL_LAST).append(last);
+        }
+
+        if (state != renderedState) {
+            textView.setTextColor(state == ReaderStatus.ConnectionState.CONNECTED ? connectedColor : disconnectedColor);
+            renderedState = state;
+        }
+        if (!contentEquals(current, previous)) {
+            if (shown.length < current.length()) shown = new char[current.length() * 2];
+            current.getChars(0, current.length(), shown, 0);
+            textView.setText(shown, 0, current.length());
+            StringBuilder swap = previous;
+            previous = current;
+            current = swap;
+        }
+    }
+
+    private void updateReadRate() {
+        long now = SystemClock.elapsedRealtime();
+        long reads = status.getTotalReads();
+        long elapsed = now - rateWindowStartMs;
+        if (elapsed >= RATE_WINDOW_MS) {
+            readRate = rateWindowStartMs == 0 ? 0 : (reads - rateWindowStartReads) * 1000 / elapsed;
+            rateWindowStartMs = now;
+            rateWindowStartReads = reads;
+            // Redraw once more after the window so the rate decays to zero when reads stop
+            mainHandler.removeCallbacks(refreshRate);
+            if (readRate > 0) mainHandler.postDelayed(refreshRate, RATE_WINDOW_MS);
+        }
+    }
+
+    private static boolean contentEquals(CharSequence a, CharSequence b) {
+        int length = a.length();
+        if (length != b.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) return false;
+        }
+        return true;
+    }
+}
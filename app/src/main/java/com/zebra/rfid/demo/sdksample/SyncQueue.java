@@ -0,0 +1,507 @@
+package com.zebra.rfid.demo.sdksample;
+
+import com.zebra.rfid.api3.TagData;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Durable outbound queue for inventory results.
+ * Tag batches are reduced to a delta of new or changed EPC records since the last
+ * sync. The delta is sealed into a gzip-compressed JSON batch file when it reaches
+ * the size limit or its oldest change reaches the age limit, and batch files are
+ * uploaded in order with an idempotency key, retrying with exponential backoff
+ * while offline. Records are only dropped once a batch is safely on disk; a seal
+ * that fails puts them back into the delta. The directory is capped by size and
+ * batch age, oldest batches going first, so a long outage cannot fill the device.
+ * Has no Android dependencies so it can run against a local HTTP server on a desktop JVM.
+ */
+class SyncQueue {
+
+    private static final String BATCH_SUFFIX = ".json.gz";
+    private static final String FAILED_SUFFIX = ".failed";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    private static final int DEFAULT_MAX_BATCH_RECORDS = 500;
+    private static final long DEFAULT_MAX_BATCH_DELAY_MS = 30_000;
+    private static final long DEFAULT_MAX_QUEUE_BYTES = 32L * 1024 * 1024;
+    private static final long DEFAULT_MAX_BATCH_AGE_MS = 7L * 24 * 60 * 60_000;
+    private static final long MIN_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 5 * 60_000;
+    private static final int TIMEOUT_MS = 15_000;
+    /** Peak RSSI movement that makes an already synced EPC count as changed. */
+    private static final int RSSI_CHANGE_DB = 3;
+
+    /** One EPC's changes since the last sealed batch. */
+    private static final class TagRecord {
+        final String epc;
+        int readCount;
+        short peakRssi = Short.MIN_VALUE;
+        short antennaId;
+        long firstSeenMs;
+        long lastSeenMs;
+
+        TagRecord(String epc, long nowMs) {
+            this.epc = epc;
+            this.firstSeenMs = nowMs;
+        }
+    }
+
+    /** Point-in-time queue metrics. */
+    static final class Stats {
+        final int queuedBatches;
+        final int pendingRecords;
+        final long bytesSent;
+        final long batchesSent;
+        final long failedAttempts;
+        final long droppedBatches;
+        final long lastLagMs;
+        final long maxLagMs;
+
+        Stats(int queuedBatches, int pendingRecords, long bytesSent, long batchesSent,
+              long failedAttempts, long droppedBatches, long lastLagMs, long maxLagMs) {
+            this.queuedBatches = queuedBatches;
+            this.pendingRecords = pendingRecords;
+            this.bytesSent = bytesSent;
+            this.batchesSent = batchesSent;
+            this.failedAttempts = failedAttempts;
+            this.droppedBatches = droppedBatches;
+            this.lastLagMs = lastLagMs;
+            this.maxLagMs = maxLagMs;
+        }
+
+        @Override
+        public String toString() {
+            return "Sync: " + queuedBatches + " batches queued, " + pendingRecords + " records pending, "
+                    + batchesSent + " sent (" + bytesSent + " bytes), " + failedAttempts + " failed attempts, "
+                    + droppedBatches + " dropped, lag " + lastLagMs + " ms (max " + maxLagMs + " ms)";
+        }
+    }
+
+    private final File directory;
+    private final URL endpoint;
+    private final String deviceId;
+    private final ScheduledThreadPoolExecutor worker = new ScheduledThreadPoolExecutor(1);
+
+    /** Last synced peak RSSI and antenna per EPC, packed; only touched on the worker. */
+    private final HashMap<String, Integer> synced = new HashMap<>();
+
+    /** Changes since the last sealed batch, keyed by EPC. Guarded by {@code this}. */
+    private LinkedHashMap<String, TagRecord> delta = new LinkedHashMap<>();
+    private long deltaStartMs;
+    private ScheduledFuture<?> sealTimer;
+
+    private volatile int maxBatchRecords = DEFAULT_MAX_BATCH_RECORDS;
+    private volatile long maxBatchDelayMs = DEFAULT_MAX_BATCH_DELAY_MS;
+    private volatile long maxQueueBytes = DEFAULT_MAX_QUEUE_BYTES;
+    private volatile long maxBatchAgeMs = DEFAULT_MAX_BATCH_AGE_MS;
+    private volatile boolean online = true;
+    private long backoffMs;
+    private ScheduledFuture<?> retryTimer;
+
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong droppedBatches = new AtomicLong();
+    private volatile long lastLagMs;
+    private volatile long maxLagMs;
+    private volatile int queuedBatches;
+
+    /**
+     * @param directory Directory batch files are persisted in; created if missing.
+     * @param endpoint Upload URL, or null to only persist batches.
+     * @param deviceId Identifier of this device included in each batch.
+     */
+    SyncQueue(File directory, URL endpoint, String deviceId) {
+        this.directory = directory;
+        this.endpoint = endpoint;
+        this.deviceId = deviceId;
+        worker.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    void setMaxBatchRecords(int maxBatchRecords) {
+        this.maxBatchRecords = Math.max(1, maxBatchRecords);
+    }
+
+    void setMaxBatchDelayMs(long maxBatchDelayMs) {
+        this.maxBatchDelayMs = Math.max(1000, maxBatchDelayMs);
+    }
+
+    /**
+     * @param maxQueueBytes Disk space batch files may use; the oldest are deleted beyond it.
+     */
+    void setMaxQueueBytes(long maxQueueBytes) {
+        this.maxQueueBytes = Math.max(0, maxQueueBytes);
+    }
+
+    /**
+     * @param maxBatchAgeMs Age after which a batch that could not be sent is deleted.
+     */
+    void setMaxBatchAgeMs(long maxBatchAgeMs) {
+        this.maxBatchAgeMs = Math.max(0, maxBatchAgeMs);
+    }
+
+    /** Picks up batches persisted by a previous run and starts uploading them. */
+    void start() {
+        execute(() -> {
+            if (!directory.isDirectory() && !directory.mkdirs()) return;
+            trim();
+            queuedBatches = listBatches().length;
+            uploadPending();
+        });
+    }
+
+    /**
+     * Records a tag batch into the pending delta. Cost is one map update per tag.
+     * @param tags Tags reported by the reader.
+     */
+    void onTagBatch(TagData[] tags) {
+        if (tags == null || tags.length == 0) return;
+        long now = System.currentTimeMillis();
+        boolean sealNow;
+        synchronized (this) {
+            if (delta.isEmpty()) deltaStartMs = now;
+            for (TagData tag : tags) {
+                if (tag == null || tag.getTagID() == null) continue;
+                TagRecord record = delta.get(tag.getTagID());
+                if (record == null) {
+                    record = new TagRecord(tag.getTagID(), now);
+                    delta.put(record.epc, record);
+                }
+                record.readCount++;
+                record.lastSeenMs = now;
+                if (tag.getPeakRSSI() > record.peakRssi) {
+                    record.peakRssi = tag.getPeakRSSI();
+                    record.antennaId = tag.getAntennaID();
+                }
+            }
+            sealNow = delta.size() >= maxBatchRecords;
+            if (!sealNow && sealTimer == null && !delta.isEmpty()) {
+                sealTimer = schedule(this::sealAndUpload, maxBatchDelayMs);
+            }
+        }
+        if (sealNow) execute(this::sealAndUpload);
+    }
+
+    /** Forgets what was synced, so every EPC of the next session is sent again. */
+    void resetSession() {
+        execute(synced::clear);
+    }
+
+    /** Seals the pending delta now, e.g. when an inventory session ends. */
+    void flush() {
+        execute(this::sealAndUpload);
+    }
+
+    /**
+     * Notifies the queue of connectivity changes; regaining connectivity retries immediately.
+     * @param online True if the network is available.
+     */
+    void setOnline(boolean online) {
+        this.online = online;
+        if (online) {
+            execute(() -> {
+                backoffMs = 0;
+                if (retryTimer != null) retryTimer.cancel(false);
+                retryTimer = null;
+                uploadPending();
+            });
+        }
+    }
+
+    synchronized Stats getStats() {
+        return new Stats(queuedBatches, delta.size(), bytesSent.get(), batchesSent.get(),
+                failedAttempts.get(), droppedBatches.get(), lastLagMs, maxLagMs);
+    }
+
+    /** Seals the pending delta to disk and stops the worker; unsent batches are kept for the next start. */
+    void shutdown() {
+        execute(this::seal);
+        worker.shutdown();
+    }
+
+    private void sealAndUpload() {
+        seal();
+        uploadPending();
+    }
+
+    /** Writes the pending delta as a new batch file. Runs on the worker. */
+    private void seal() {
+        LinkedHashMap<String, TagRecord> records;
+        long startMs;
+        synchronized (this) {
+            if (sealTimer != null) {
+                sealTimer.cancel(false);
+                sealTimer = null;
+            }
+            if (delta.isEmpty()) return;
+            records = delta;
+            startMs = deltaStartMs;
+            delta = new LinkedHashMap<>();
+        }
+        // Drop EPCs whose synced state has not materially changed
+        Iterator<TagRecord> it = records.values().iterator();
+        while (it.hasNext()) {
+            TagRecord record = it.next();
+            Integer previous = synced.get(record.epc);
+            if (previous != null && (short) (previous >> 16) == record.antennaId
+                    && Math.abs((short) previous.intValue() - record.peakRssi) < RSSI_CHANGE_DB) {
+                it.remove();
+            }
+        }
+        if (records.isEmpty()) return;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            failedAttempts.incrementAndGet();
+            restore(records, startMs);
+            return;
+        }
+        String key = UUID.randomUUID().toString();
+        // Name sorts by creation time and carries the capture start for lag and the idempotency key
+        File file = new File(directory, System.currentTimeMillis() + "_" + startMs + "_" + key + BATCH_SUFFIX);
+        File tmp = new File(directory, file.getName() + TMP_SUFFIX);
+        boolean written;
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(tmp)), StandardCharsets.UTF_8)) {
+            writeJson(out, key, records);
+            written = true;
+        } catch (IOException e) {
+            written = false;
+        }
+        if (!written || !tmp.renameTo(file)) {
+            failedAttempts.incrementAndGet();
+            tmp.delete();
+            restore(records, startMs);
+            return;
+        }
+        queuedBatches++;
+        for (TagRecord record : records.values()) {
+            synced.put(record.epc, (record.antennaId << 16) | (record.peakRssi & 0xFFFF));
+        }
+        trim();
+    }
+
+    /**
+     * Puts the records of a batch that could not be written back in front of the delta,
+     * merging them with anything read since, and arms the seal timer to try again.
+     */
+    private synchronized void restore(LinkedHashMap<String, TagRecord> records, long startMs) {
+        for (TagRecord newer : delta.values()) {
+            TagRecord older = records.get(newer.epc);
+            if (older == null) {
+                records.put(newer.epc, newer);
+                continue;
+            }
+            older.readCount += newer.readCount;
+            older.lastSeenMs = Math.max(older.lastSeenMs, newer.lastSeenMs);
+            if (newer.peakRssi > older.peakRssi) {
+                older.peakRssi = newer.peakRssi;
+                older.antennaId = newer.antennaId;
+            }
+        }
+        if (!delta.isEmpty()) startMs = Math.min(startMs, deltaStartMs);
+        delta = records;
+        deltaStartMs = startMs;
+        if (sealTimer == null) sealTimer = schedule(this::sealAndUpload, maxBatchDelayMs);
+    }
+
+    /**
+     * Deletes batch files, parked ones included, that are older than the age limit, then the
+     * oldest ones until the directory fits the size limit. Runs on the worker.
+     */
+    private void trim() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(BATCH_SUFFIX) || name.endsWith(FAILED_SUFFIX));
+        if (files == null) return;
+        // Names start with the creation time, so name order is age order
+        Arrays.sort(files);
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        long oldestAllowed = System.currentTimeMillis() - maxBatchAgeMs;
+        for (File file : files) {
+            if (total <= maxQueueBytes && createdAt(file) >= oldestAllowed) break;
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+                droppedBatches.incrementAndGet();
+                if (file.getName().endsWith(BATCH_SUFFIX)) queuedBatches--;
+            }
+        }
+    }
+
+    private static long createdAt(File batch) {
+        String name = batch.getName();
+        int end = name.indexOf('_');
+        try {
+            return end > 0 ? Long.parseLong(name.substring(0, end)) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void writeJson(Writer out, String key, Map<String, TagRecord> records) throws IOException {
+        out.write("{\"batchId\":\"");
+        out.write(key);
+        out.write("\",\"device\":\"");
+        writeEscaped(out, deviceId);
+        out.write("\",\"records\":[");
+        boolean first = true;
+        for (TagRecord record : records.values()) {
+            if (!first) out.write(',');
+            first = false;
+            out.write("{\"epc\":\"");
+            writeEscaped(out, record.epc);
+            out.write("\",\"reads\":");
+            out.write(Integer.toString(record.readCount));
+            out.write(",\"peakRssi\":");
+            out.write(Short.toString(record.peakRssi));
+            out.write(",\"antenna\":");
+            out.write(Short.toString(record.antennaId));
+            out.write(",\"firstSeen\":");
+            out.write(Long.toString(record.firstSeenMs));
+            out.write(",\"lastSeen\":");
+            out.write(Long.toString(record.lastSeenMs));
+            out.write('}');
+        }
+        out.write("]}");
+    }
+
+    private static void writeEscaped(Writer out, String value) throws IOException {
+        if (value == null) return;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+    }
+
+    /** Uploads batch files oldest first until the queue is empty or an attempt fails. Runs on the worker. */
+    private void uploadPending() {
+        if (endpoint == null || !online || retryTimer != null) return;
+        File[] batches = listBatches();
+        queuedBatches = batches.length;
+        for (File batch : batches) {
+            int status;
+            try {
+                status = upload(batch);
+            } catch (IOException e) {
+                status = -1;
+            }
+            if (status >= 200 && status < 300) {
+                batch.delete();
+                queuedBatches--;
+                backoffMs = 0;
+                recordLag(batch);
+            } else if (status >= 400 && status < 500 && status != 408 && status != 429) {
+                // The server rejected the batch itself; park it instead of blocking the queue
+                batch.renameTo(new File(directory, batch.getName() + FAILED_SUFFIX));
+                queuedBatches--;
+                failedAttempts.incrementAndGet();
+            } else {
+                failedAttempts.incrementAndGet();
+                backoffMs = backoffMs == 0 ? MIN_BACKOFF_MS : Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+                retryTimer = schedule(() -> {
+                    retryTimer = null;
+                    uploadPending();
+                }, backoffMs);
+                return;
+            }
+        }
+    }
+
+    private int upload(File batch) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(batch.length());
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setRequestProperty(IDEMPOTENCY_HEADER, idempotencyKey(batch));
+            long sent = 0;
+            byte[] buffer = new byte[8192];
+            try (InputStream in = new FileInputStream(batch); OutputStream out = connection.getOutputStream()) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                    sent += n;
+                }
+            }
+            int status = connection.getResponseCode();
+            bytesSent.addAndGet(sent);
+            if (status >= 200 && status < 300) batchesSent.incrementAndGet();
+            return status;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void recordLag(File batch) {
+        String[] parts = batch.getName().split("_", 3);
+        if (parts.length < 3) return;
+        try {
+            long lag = System.currentTimeMillis() - Long.parseLong(parts[1]);
+            lastLagMs = lag;
+            if (lag > maxLagMs) maxLagMs = lag;
+        } catch (NumberFormatException ignored) {
+            // Not a name written by seal()
+        }
+    }
+
+    private static String idempotencyKey(File batch) {
+        String name = batch.getName();
+        String[] parts = name.substring(0, name.length() - BATCH_SUFFIX.length()).split("_", 3);
+        return parts[parts.length - 1];
+    }
+
+    private File[] listBatches() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(BATCH_SUFFIX));
+        if (files == null) return new File[0];
+        Arrays.sort(files);
+        return files;
+    }
+
+    private void execute(Runnable task) {
+        try {
+            worker.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shut down; batches already on disk are picked up by the next start()
+        }
+    }
+
+    private ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        try {
+            return worker.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,708 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.util.Log;
+
+import com.zebra.rfid.api3.ACCESS_OPERATION_CODE;
+import com.zebra.rfid.api3.ACCESS_OPERATION_STATUS;
+import com.zebra.rfid.api3.AccessFilter;
+import com.zebra.rfid.api3.FILTER_MATCH_PATTERN;
+import com.zebra.rfid.api3.InvalidUsageException;
+import com.zebra.rfid.api3.LOCK_DATA_FIELD;
+import com.zebra.rfid.api3.LOCK_PRIVILEGE;
+import com.zebra.rfid.api3.MEMORY_BANK;
+import com.zebra.rfid.api3.OperationFailureException;
+import com.zebra.rfid.api3.RFIDReader;
+import com.zebra.rfid.api3.TagAccess;
+import com.zebra.rfid.api3.TagData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batch engine for tag memory read/write/lock operations.
+ * Queued operations are sent to the reader as access sequences instead of one
+ * round trip per tag. Reads with the same parameters share one sequence round
+ * across all EPCs in the field; writes and locks are grouped per EPC behind an
+ * access filter so a tag's encode/lock/verify costs a single round.
+ * The in-flight limit is a window rather than a round size: a read sequence keeps
+ * running while queued reads of the same shape are admitted as earlier ones answer.
+ * Failed or unanswered operations are retried with exponential backoff.
+ */
+class TagAccessEngine {
+
+    private static final String TAG = "TagAccessEngine";
+    private static final int EPC_BIT_OFFSET = 32;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 8;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_ROUND_TIMEOUT_MS = 1500;
+    private static final long DEFAULT_BACKOFF_MS = 100;
+    private static final long MAX_BACKOFF_MS = 2000;
+
+    enum OpType { READ, WRITE, LOCK }
+
+    /**
+     * A single queued access operation against one EPC.
+     * Build instances through {@link #read}, {@link #write} and {@link #lock}.
+     */
+    static final class AccessOp {
+        final OpType type;
+        final String epc;
+        final MEMORY_BANK memoryBank;
+        final int wordOffset;
+        final int wordCount;
+        final String data;
+        final LOCK_DATA_FIELD lockField;
+        final LOCK_PRIVILEGE lockPrivilege;
+        final long password;
+
+        int attempts;
+        long enqueueTimeMs;
+        /** When the current attempt was put on the reader. */
+        long issueTimeMs;
+        long notBeforeMs;
+        long deadlineMs;
+
+        private AccessOp(OpType type, String epc, MEMORY_BANK memoryBank, int wordOffset, int wordCount,
+                         String data, LOCK_DATA_FIELD lockField, LOCK_PRIVILEGE lockPrivilege, long password) {
+            this.type = type;
+            this.epc = epc;
+            this.memoryBank = memoryBank;
+            this.wordOffset = wordOffset;
+            this.wordCount = wordCount;
+            this.data = data;
+            this.lockField = lockField;
+            this.lockPrivilege = lockPrivilege;
+            this.password = password;
+        }
+
+        static AccessOp read(String epc, MEMORY_BANK bank, int wordOffset, int wordCount, long password) {
+            return new AccessOp(OpType.READ, epc, bank, wordOffset, wordCount, null, null, null, password);
+        }
+
+        /**
+         * @param hexData Data to write as a hex string; its length must be a multiple of 4 (one word).
+         * @throws IllegalArgumentException If the data is empty, not hex or not whole words.
+         */
+        static AccessOp write(String epc, MEMORY_BANK bank, int wordOffset, String hexData, long password) {
+            if (hexData == null || hexData.isEmpty() || hexData.length() % 4 != 0) {
+                throw new IllegalArgumentException("Write data must be a non-empty multiple of 4 hex digits: " + hexData);
+            }
+            for (int i = 0; i < hexData.length(); i++) {
+                if (Character.digit(hexData.charAt(i), 16) < 0) {
+                    throw new IllegalArgumentException("Write data is not hex: " + hexData);
+                }
+            }
+            return new AccessOp(OpType.WRITE, epc, bank, wordOffset, hexData.length() / 4, hexData, null, null, password);
+        }
+
+        static AccessOp lock(String epc, LOCK_DATA_FIELD field, LOCK_PRIVILEGE privilege, long password) {
+            return new AccessOp(OpType.LOCK, epc, null, 0, 0, null, field, privilege, password);
+        }
+
+        /** Key of the parameters shared by reads that can run in one unfiltered sequence operation. */
+        String readShapeKey() {
+            return memoryBank + ":" + wordOffset + ":" + wordCount + ":" + password;
+        }
+
+        ACCESS_OPERATION_CODE opCode() {
+            switch (type) {
+                case WRITE:
+                    return ACCESS_OPERATION_CODE.ACCESS_OPERATION_WRITE;
+                case LOCK:
+                    return ACCESS_OPERATION_CODE.ACCESS_OPERATION_LOCK;
+                default:
+                    return ACCESS_OPERATION_CODE.ACCESS_OPERATION_READ;
+            }
+        }
+    }
+
+    /** Outcome of an {@link AccessOp} after its final attempt. */
+    static final class AccessResult {
+        final AccessOp op;
+        final boolean success;
+        final String status;
+        final String memoryData;
+        /** Time the final attempt spent on the reader. */
+        final long latencyMs;
+        /** Time from submission until the final attempt was issued, including earlier attempts and backoff. */
+        final long queueMs;
+        final int attempts;
+
+        AccessResult(AccessOp op, boolean success, String status, String memoryData, long now) {
+            this.op = op;
+            this.success = success;
+            this.status = status;
+            this.memoryData = memoryData;
+            this.latencyMs = now - op.issueTimeMs;
+            this.queueMs = op.issueTimeMs - op.enqueueTimeMs;
+            this.attempts = op.attempts;
+        }
+    }
+
+    interface ResultListener {
+        void onAccessResult(AccessResult result);
+    }
+
+    /** Point-in-time counters for the engine. */
+    static final class Stats {
+        final long submitted;
+        final long succeeded;
+        final long failed;
+        final long retries;
+        final long rounds;
+        /** Time on the reader of completed ops' final attempts. */
+        final long avgLatencyMs;
+        final long maxLatencyMs;
+        /** Time completed ops waited before their final attempt. */
+        final long avgQueueMs;
+        final long maxQueueMs;
+        final int queued;
+
+        Stats(long submitted, long succeeded, long failed, long retries, long rounds,
+              long avgLatencyMs, long maxLatencyMs, long avgQueueMs, long maxQueueMs, int queued) {
+            this.submitted = submitted;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.retries = retries;
+            this.rounds = rounds;
+            this.avgLatencyMs = avgLatencyMs;
+            this.maxLatencyMs = maxLatencyMs;
+            this.avgQueueMs = avgQueueMs;
+            this.maxQueueMs = maxQueueMs;
+            this.queued = queued;
+        }
+
+        double successRate() {
+            long done = succeeded + failed;
+            return done == 0 ? 0 : (double) succeeded / done;
+        }
+
+        @Override
+        public String toString() {
+            return "Access ops: " + succeeded + "/" + (succeeded + failed) + " ok ("
+                    + Math.round(successRate() * 100) + "%), retries " + retries
+                    + ", rounds " + rounds + ", on air avg " + avgLatencyMs + " ms, max " + maxLatencyMs
+                    + " ms, waiting avg " + avgQueueMs + " ms, max " + maxQueueMs + " ms, queued " + queued;
+        }
+    }
+
+    private final RFIDHandler rfidHandler;
+    private final ArrayDeque<AccessOp> queue = new ArrayDeque<>();
+    /** Ops of the round currently on the reader, keyed by EPC. Guarded by {@code this}. */
+    private final Map<String, List<AccessOp>> inFlight = new HashMap<>();
+    private int inFlightCount;
+    private volatile boolean roundActive;
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+    private final ExecutorService resultExecutor = Executors.newSingleThreadExecutor();
+    private final ScheduledThreadPoolExecutor retryScheduler = new ScheduledThreadPoolExecutor(1);
+    /** The one pending drain wake-up for ops backing off, or null. Guarded by {@code this}. */
+    private ScheduledFuture<?> wakeup;
+    private volatile ResultListener listener;
+
+    private volatile int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+    private volatile long roundTimeoutMs = DEFAULT_ROUND_TIMEOUT_MS;
+    private boolean draining;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rounds = new AtomicLong();
+    private final AtomicLong totalLatencyMs = new AtomicLong();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+    private final AtomicLong totalQueueMs = new AtomicLong();
+    private final AtomicLong maxQueueMs = new AtomicLong();
+
+    TagAccessEngine(RFIDHandler rfidHandler) {
+        this.rfidHandler = rfidHandler;
+        // A wake-up moved earlier must not linger in the queue until its old time
+        retryScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    void setResultListener(ResultListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the maximum number of operations outstanding on the reader at any time.
+     * Reads sharing parameters refill the window while their sequence runs; a write/lock
+     * round for one EPC is capped at this many operations.
+     */
+    void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    void setMaxRetries(int maxRetries) {
+        this.maxRetries = Math.max(0, maxRetries);
+    }
+
+    /**
+     * Sets how long each operation may stay on the reader unanswered before it is retried.
+     */
+    void setRoundTimeoutMs(long roundTimeoutMs) {
+        this.roundTimeoutMs = Math.max(100, roundTimeoutMs);
+    }
+
+    /**
+     * Queues operations and starts dispatching if the engine is idle.
+     * @param ops Operations to queue.
+     */
+    void submit(Collection<AccessOp> ops) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (AccessOp op : ops) {
+                op.enqueueTimeMs = now;
+                queue.add(op);
+            }
+            // A running read sequence may be able to take them right away
+            notifyAll();
+        }
+        submitted.addAndGet(ops.size());
+        scheduleDrain();
+    }
+
+    void submit(AccessOp op) {
+        List<AccessOp> ops = new ArrayList<>(1);
+        ops.add(op);
+        submit(ops);
+    }
+
+    /** @return True while a sequence round is running on the reader. */
+    boolean isBusy() {
+        return roundActive;
+    }
+
+    Stats getStats() {
+        long ok = succeeded.get();
+        long ko = failed.get();
+        long done = ok + ko;
+        int queued;
+        synchronized (this) {
+            queued = queue.size();
+        }
+        return new Stats(submitted.get(), ok, ko, retries.get(), rounds.get(),
+                done == 0 ? 0 : totalLatencyMs.get() / done, maxLatencyMs.get(),
+                done == 0 ? 0 : totalQueueMs.get() / done, maxQueueMs.get(), queued);
+    }
+
+    /** @return True while the dispatcher is picking or running rounds. */
+    synchronized boolean isDraining() {
+        return draining;
+    }
+
+    /** @return Drain wake-ups scheduled for ops that are backing off. */
+    int getScheduledWakeups() {
+        return retryScheduler.getQueue().size();
+    }
+
+    void shutdown() {
+        synchronized (this) {
+            queue.clear();
+        }
+        retryScheduler.shutdownNow();
+        dispatcher.shutdownNow();
+        resultExecutor.shutdown();
+    }
+
+    /**
+     * Consumes access results from a read notification.
+     * Called from the reader event thread; returns immediately when no round is active.
+     * @param tags Tags reported by the reader.
+     */
+    void onTagData(TagData[] tags) {
+        if (!roundActive || tags == null) return;
+        synchronized (this) {
+            for (TagData tag : tags) {
+                if (tag == null || tag.getTagID() == null) continue;
+                ACCESS_OPERATION_CODE opCode = tag.getOpCode();
+                if (opCode == null || opCode == ACCESS_OPERATION_CODE.ACCESS_OPERATION_NONE) continue;
+                List<AccessOp> ops = inFlight.get(tag.getTagID());
+                if (ops == null) continue;
+                Iterator<AccessOp> it = ops.iterator();
+                while (it.hasNext()) {
+                    AccessOp op = it.next();
+                    if (op.opCode() == opCode && (op.type != OpType.READ || op.memoryBank == tag.getMemoryBank())) {
+                        it.remove();
+                        inFlightCount--;
+                        completeAttempt(op, tag.getOpStatus(), tag.getMemoryBankData());
+                        notifyAll();
+                        break;
+                    }
+                }
+                if (ops.isEmpty()) inFlight.remove(tag.getTagID());
+            }
+        }
+    }
+
+    private synchronized void scheduleDrain() {
+        if (draining || dispatcher.isShutdown()) return;
+        draining = true;
+        dispatcher.execute(this::drain);
+    }
+
+    private void drain() {
+        while (true) {
+            List<AccessOp> round;
+            synchronized (this) {
+                round = nextRound();
+                if (round.isEmpty()) {
+                    draining = false;
+                    // Ops still backing off may have missed their wake-up while this drain ran
+                    long earliest = earliestNotBefore(null);
+                    if (earliest != Long.MAX_VALUE) scheduleWakeup(earliest);
+                    return;
+                }
+            }
+            runRound(round);
+        }
+    }
+
+    /**
+     * Makes sure a drain runs by the given time, keeping a single wake-up pending.
+     * @param atMs When the earliest backing-off op may run.
+     */
+    private synchronized void scheduleWakeup(long atMs) {
+        if (retryScheduler.isShutdown()) return;
+        long wait = Math.max(0, atMs - System.currentTimeMillis());
+        if (wakeup != null) {
+            if (wakeup.getDelay(TimeUnit.MILLISECONDS) <= wait) return;
+            wakeup.cancel(false);
+        }
+        ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+        self[0] = retryScheduler.schedule(() -> onWakeup(self[0]), wait, TimeUnit.MILLISECONDS);
+        wakeup = self[0];
+    }
+
+    /**
+     * Clears the pending wake-up before draining, under the same lock the drain's idle check
+     * takes, so a drain that is running now reschedules instead of counting on this one.
+     */
+    private synchronized void onWakeup(ScheduledFuture<?> fired) {
+        if (wakeup == fired) wakeup = null;
+        scheduleDrain();
+    }
+
+    /**
+     * Picks the next round: either up to {@code maxInFlight} reads sharing the same parameters,
+     * or all queued writes/locks for the EPC at the head of the queue.
+     */
+    private List<AccessOp> nextRound() {
+        List<AccessOp> round = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        AccessOp head = null;
+        for (AccessOp op : queue) {
+            if (op.notBeforeMs <= now) {
+                head = op;
+                break;
+            }
+        }
+        if (head == null) return round;
+        int limit = maxInFlight;
+        Iterator<AccessOp> it = queue.iterator();
+        while (it.hasNext() && round.size() < limit) {
+            AccessOp op = it.next();
+            if (op.notBeforeMs > now) continue;
+            boolean sameRound = head.type == OpType.READ
+                    ? op.type == OpType.READ && op.readShapeKey().equals(head.readShapeKey())
+                    : op.type != OpType.READ && op.epc.equals(head.epc);
+            if (sameRound) {
+                it.remove();
+                round.add(op);
+            }
+        }
+        return round;
+    }
+
+    private void runRound(List<AccessOp> round) {
+        AccessOp head = round.get(0);
+        synchronized (this) {
+            inFlight.clear();
+            inFlightCount = 0;
+            admit(round, System.currentTimeMillis());
+        }
+        rounds.incrementAndGet();
+
+        // Results can be reported as soon as the sequence starts, so accept them before starting it
+        roundActive = true;
+        String error = startSequence(round);
+        if (error != null) {
+            roundActive = false;
+        } else {
+            // An unfiltered read serves any EPC in the field, so matching reads join the running sequence
+            boolean refill = head.type == OpType.READ;
+            try {
+                synchronized (this) {
+                    while (true) {
+                        long now = System.currentTimeMillis();
+                        expire(now);
+                        if (refill) admit(takeSameShape(head, now), now);
+                        if (inFlightCount == 0) break;
+                        long wakeAt = Math.min(nextDeadline(), refill ? earliestNotBefore(head) : Long.MAX_VALUE);
+                        if (wakeAt > now) wait(wakeAt - now);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                roundActive = false;
+                stopSequence();
+            }
+        }
+
+        List<AccessOp> unanswered = new ArrayList<>();
+        synchronized (this) {
+            for (List<AccessOp> ops : inFlight.values()) {
+                unanswered.addAll(ops);
+            }
+            inFlight.clear();
+            inFlightCount = 0;
+        }
+        String reason = error != null ? error : ACCESS_OPERATION_STATUS.ACCESS_NO_RESPONSE_FROM_TAG.toString();
+        for (AccessOp op : unanswered) {
+            retryOrFail(op, reason);
+        }
+    }
+
+    /** Puts ops on the reader's books. Must be called with the engine lock held. */
+    private void admit(List<AccessOp> ops, long now) {
+        for (AccessOp op : ops) {
+            op.attempts++;
+            op.issueTimeMs = now;
+            op.deadlineMs = now + roundTimeoutMs;
+            List<AccessOp> forEpc = inFlight.get(op.epc);
+            if (forEpc == null) {
+                forEpc = new ArrayList<>();
+                inFlight.put(op.epc, forEpc);
+            }
+            forEpc.add(op);
+            inFlightCount++;
+        }
+    }
+
+    /** Removes queued reads that can join a running read sequence, up to the free window. Lock held. */
+    private List<AccessOp> takeSameShape(AccessOp head, long now) {
+        List<AccessOp> taken = new ArrayList<>();
+        int free = maxInFlight - inFlightCount;
+        Iterator<AccessOp> it = queue.iterator();
+        while (it.hasNext() && taken.size() < free) {
+            AccessOp op = it.next();
+            if (op.type == OpType.READ && op.notBeforeMs <= now && op.readShapeKey().equals(head.readShapeKey())) {
+                it.remove();
+                taken.add(op);
+            }
+        }
+        return taken;
+    }
+
+    /** Retries or fails in-flight ops whose time on the reader is up. Lock held. */
+    private void expire(long now) {
+        List<AccessOp> expired = null;
+        Iterator<List<AccessOp>> lists = inFlight.values().iterator();
+        while (lists.hasNext()) {
+            List<AccessOp> ops = lists.next();
+            Iterator<AccessOp> it = ops.iterator();
+            while (it.hasNext()) {
+                AccessOp op = it.next();
+                if (op.deadlineMs <= now) {
+                    it.remove();
+                    inFlightCount--;
+                    if (expired == null) expired = new ArrayList<>();
+                    expired.add(op);
+                }
+            }
+            if (ops.isEmpty()) lists.remove();
+        }
+        if (expired == null) return;
+        for (AccessOp op : expired) {
+            retryOrFail(op, ACCESS_OPERATION_STATUS.ACCESS_NO_RESPONSE_FROM_TAG.toString());
+        }
+    }
+
+    /** Lock held. */
+    private long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (List<AccessOp> ops : inFlight.values()) {
+            for (AccessOp op : ops) {
+                next = Math.min(next, op.deadlineMs);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Lock held.
+     * @param shape Only consider reads of this op's shape, or null for any queued op.
+     * @return The earliest time a queued op may run, or {@link Long#MAX_VALUE} if none is queued.
+     */
+    private long earliestNotBefore(AccessOp shape) {
+        long earliest = Long.MAX_VALUE;
+        for (AccessOp op : queue) {
+            if (shape != null && (op.type != OpType.READ || !op.readShapeKey().equals(shape.readShapeKey()))) continue;
+            earliest = Math.min(earliest, op.notBeforeMs);
+        }
+        return earliest;
+    }
+
+    /**
+     * Loads the round into the reader's operation sequence and starts it.
+     * @return Null on success, or an error message.
+     */
+    private String startSequence(List<AccessOp> round) {
+        synchronized (rfidHandler) {
+            RFIDReader reader = rfidHandler.getConnectedReader();
+            if (reader == null) return RFIDHandler.DISCONNECTED;
+            try {
+                TagAccess.Sequence sequence = reader.Actions.TagAccess.OperationSequence;
+                sequence.deleteAll();
+                AccessOp head = round.get(0);
+                if (head.type == OpType.READ) {
+                    // One unfiltered read serves every EPC of the round; results for other tags are ignored
+                    sequence.add(buildOperation(sequence, head));
+                    sequence.performSequence();
+                } else {
+                    for (AccessOp op : round) {
+                        sequence.add(buildOperation(sequence, op));
+                    }
+                    sequence.performSequence(epcFilter(head.epc), null, null);
+                }
+                return null;
+            } catch (InvalidUsageException e) {
+                Log.e(TAG, "Error starting access sequence", e);
+                return e.getMessage();
+            } catch (OperationFailureException e) {
+                Log.e(TAG, "Error starting access sequence", e);
+                return e.getStatusDescription();
+            }
+        }
+    }
+
+    private void stopSequence() {
+        synchronized (rfidHandler) {
+            RFIDReader reader = rfidHandler.getConnectedReader();
+            if (reader == null) return;
+            try {
+                reader.Actions.TagAccess.OperationSequence.stopSequence();
+                reader.Actions.TagAccess.OperationSequence.deleteAll();
+            } catch (InvalidUsageException | OperationFailureException e) {
+                Log.e(TAG, "Error stopping access sequence", e);
+            }
+        }
+    }
+
+    private static TagAccess.Sequence.Operation buildOperation(TagAccess.Sequence sequence, AccessOp op) {
+        TagAccess.Sequence.Operation operation = sequence.new Operation();
+        operation.setAccessOperationCode(op.opCode());
+        switch (op.type) {
+            case READ:
+                operation.ReadAccessParams.setMemoryBank(op.memoryBank);
+                operation.ReadAccessParams.setOffset(op.wordOffset);
+                operation.ReadAccessParams.setCount(op.wordCount);
+                operation.ReadAccessParams.setAccessPassword(op.password);
+                break;
+            case WRITE:
+                operation.WriteAccessParams.setMemoryBank(op.memoryBank);
+                operation.WriteAccessParams.setOffset(op.wordOffset);
+                operation.WriteAccessParams.setWriteData(op.data);
+                operation.WriteAccessParams.setWriteDataLength(op.wordCount);
+                operation.WriteAccessParams.setAccessPassword(op.password);
+                break;
+            case LOCK:
+                operation.LockAccessParams.setLockPrivilege(op.lockField, op.lockPrivilege);
+                operation.LockAccessParams.setAccessPassword(op.password);
+                break;
+        }
+        return operation;
+    }
+
+    private static AccessFilter epcFilter(String epc) {
+        AccessFilter filter = new AccessFilter();
+        int bits = epc.length() * 4;
+        StringBuilder mask = new StringBuilder(epc.length());
+        for (int i = 0; i < epc.length(); i++) mask.append('F');
+        filter.TagPatternA.setMemoryBank(MEMORY_BANK.MEMORY_BANK_EPC);
+        filter.TagPatternA.setBitOffset(EPC_BIT_OFFSET);
+        filter.TagPatternA.setTagPattern(epc);
+        filter.TagPatternA.setTagPatternBitCount(bits);
+        filter.TagPatternA.setTagMask(mask.toString());
+        filter.TagPatternA.setTagMaskBitCount(bits);
+        filter.setAccessFilterMatchPattern(FILTER_MATCH_PATTERN.A);
+        return filter;
+    }
+
+    /** Must be called with the engine lock held. */
+    private void completeAttempt(AccessOp op, ACCESS_OPERATION_STATUS status, String memoryData) {
+        if (status == ACCESS_OPERATION_STATUS.ACCESS_SUCCESS) {
+            deliver(new AccessResult(op, true, status.toString(), memoryData, System.currentTimeMillis()));
+        } else {
+            retryOrFail(op, status != null ? status.toString() : "Unknown status");
+        }
+    }
+
+    private void retryOrFail(AccessOp op, String reason) {
+        if (op.attempts <= maxRetries && !retryScheduler.isShutdown()) {
+            retries.incrementAndGet();
+            long backoff = Math.min(MAX_BACKOFF_MS, DEFAULT_BACKOFF_MS << (op.attempts - 1));
+            op.notBeforeMs = System.currentTimeMillis() + backoff;
+            synchronized (this) {
+                queue.add(op);
+                notifyAll();
+            }
+            scheduleWakeup(op.notBeforeMs);
+        } else {
+            deliver(new AccessResult(op, false, reason, null, System.currentTimeMillis()));
+        }
+    }
+
+    private void deliver(AccessResult result) {
+        if (result.success) {
+            succeeded.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+            Log.w(TAG, "Access " + result.op.type + " failed for " + result.op.epc + ": " + result.status);
+        }
+        totalLatencyMs.addAndGet(result.latencyMs);
+        raise(maxLatencyMs, result.latencyMs);
+        totalQueueMs.addAndGet(result.queueMs);
+        raise(maxQueueMs, result.queueMs);
+        ResultListener l = listener;
+        if (l != null && !resultExecutor.isShutdown()) {
+            resultExecutor.execute(() -> l.onAccessResult(result));
+        }
+    }
+
+    private static void raise(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) break;
+        }
+    }
+
+    /**
+     * Convenience for the encode station: write each tag's user memory and lock it in one round per tag.
+     * @param epcToData EPC mapped to the hex data to write at user memory word 0.
+     * @param password Access password of the tags.
+     */
+    void encodeAndLock(Map<String, String> epcToData, long password) {
+        List<AccessOp> ops = new ArrayList<>(epcToData.size() * 2);
+        for (Map.Entry<String, String> entry : new LinkedHashMap<>(epcToData).entrySet()) {
+            ops.add(AccessOp.write(entry.getKey(), MEMORY_BANK.MEMORY_BANK_USER, 0, entry.getValue(), password));
+            ops.add(AccessOp.lock(entry.getKey(), LOCK_DATA_FIELD.LOCK_USER_MEMORY,
+                    LOCK_PRIVILEGE.LOCK_PRIVILEGE_READ_WRITE, password));
+        }
+        submit(ops);
+    }
+}
@@ -0,0 +1,477 @@
+package com.zebra.rfid.demo.sdksample;
+
+import com.zebra.rfid.api3.TagData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Unique tags of the current session with indexes maintained as batches arrive:
+ * <ul>
+ *     <li>EPCs in a sorted id array, merged per batch, so a hex prefix is a binary-searched range;</li>
+ *     <li>GTIN-14 decoded from SGTIN-96 EPCs to the ids carrying it;</li>
+ *     <li>one bucket per dBm of peak RSSI, with each id's slot kept for O(1) moves.</li>
+ * </ul>
+ * Ids are assigned in discovery order. Queries return a {@link Result} of ids rather than a
+ * copy of the rows; a result stays valid while more tags arrive because entries are never
+ * removed until {@link #clear()}.
+ */
+class TagIndex {
+
+    static final int MIN_RSSI = -127;
+    static final int MAX_RSSI = 0;
+    private static final int BUCKETS = MAX_RSSI - MIN_RSSI + 1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Ids matching a query, in display order. */
+    interface Result {
+        int size();
+
+        int idAt(int position);
+    }
+
+    /** Search criteria; null or out-of-range fields match everything. */
+    static final class Query {
+        String epcPrefix;
+        String gtin;
+        int minRssi = MIN_RSSI;
+        int maxRssi = MAX_RSSI;
+
+        boolean isEmpty() {
+            return (epcPrefix == null || epcPrefix.isEmpty()) && gtin == null
+                    && minRssi <= MIN_RSSI && maxRssi >= MAX_RSSI;
+        }
+
+        /**
+         * Parses search text: whitespace-separated terms, each either {@code gtin:<14 digits>}
+         * (or bare 14 digits), {@code rssi:<min>..<max>}, or an EPC hex prefix.
+         * @return The query, or null if the text is not a valid query.
+         */
+        static Query parse(String text) {
+            Query query = new Query();
+            for (String term : text.trim().split("\\s+")) {
+                if (term.isEmpty()) continue;
+                String lower = term.toLowerCase(Locale.ROOT);
+                if (lower.startsWith("rssi:")) {
+                    String[] bounds = lower.substring(5).split("\\.\\.", -1);
+                    if (bounds.length != 2) return null;
+                    try {
+                        if (!bounds[0].isEmpty()) query.minRssi = Integer.parseInt(bounds[0]);
+                        if (!bounds[1].isEmpty()) query.maxRssi = Integer.parseInt(bounds[1]);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                } else if (lower.startsWith("gtin:")) {
+                    query.gtin = normalizeGtin(lower.substring(5));
+                    if (query.gtin == null) return null;
+                } else if (term.length() == 14 && isDigits(term)) {
+                    query.gtin = term;
+                } else if (isHex(term)) {
+                    query.epcPrefix = term.toUpperCase(Locale.ROOT);
+                } else {
+                    return null;
+                }
+            }
+            return query;
+        }
+    }
+
+    private static final Result EMPTY = new Result() {
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public int idAt(int position) {
+            throw new IndexOutOfBoundsException();
+        }
+    };
+
+    // Columns by id, guarded by this
+    private final Map<String, Integer> idByEpc = new HashMap<>();
+    private String[] epcs = new String[INITIAL_CAPACITY];
+    private short[] rssi = new short[INITIAL_CAPACITY];
+    /** Position of each id within its RSSI bucket. */
+    private int[] bucketSlot = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /** Ids sorted by EPC; replaced, never modified, so results can keep a reference. */
+    private int[] sortedByEpc = new int[0];
+    private final Map<String, IdList> idsByGtin = new HashMap<>();
+    private final IdList[] rssiBuckets = new IdList[BUCKETS];
+
+    // Reused per batch
+    private final ArrayList<Integer> added = new ArrayList<>();
+
+    TagIndex() {
+        for (int i = 0; i < BUCKETS; i++) {
+            rssiBuckets[i] = new IdList();
+        }
+    }
+
+    /**
+     * Adds new tags and raises peak RSSI of known ones.
+     * @param tags Tag reads from the reader.
+     * @return Number of tags not seen before.
+     */
+    synchronized int add(TagData[] tags) {
+        added.clear();
+        for (TagData tag : tags) {
+            if (tag == null || tag.getTagID() == null) continue;
+            String epc = tag.getTagID();
+            short peak = tag.getPeakRSSI();
+            Integer existing = idByEpc.get(epc);
+            if (existing == null) {
+                int id = size++;
+                ensureCapacity(size);
+                idByEpc.put(epc, id);
+                epcs[id] = epc;
+                rssi[id] = peak;
+                IdList bucket = rssiBuckets[bucket(peak)];
+                bucketSlot[id] = bucket.size;
+                bucket.add(id);
+                String gtin = sgtin96ToGtin(epc);
+                if (gtin != null) {
+                    IdList ids = idsByGtin.get(gtin);
+                    if (ids == null) idsByGtin.put(gtin, ids = new IdList());
+                    ids.add(id);
+                }
+                added.add(id);
+            } else if (peak > rssi[existing]) {
+                moveBucket(existing, peak);
+            }
+        }
+        if (!added.isEmpty()) mergeSorted();
+        return added.size();
+    }
+
+    synchronized void clear() {
+        idByEpc.clear();
+        Arrays.fill(epcs, 0, size, null);
+        size = 0;
+        sortedByEpc = new int[0];
+        idsByGtin.clear();
+        for (IdList bucket : rssiBuckets) {
+            bucket.size = 0;
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized String getEpc(int id) {
+        return epcs[id];
+    }
+
+    synchronized short getPeakRssi(int id) {
+        return rssi[id];
+    }
+
+    /** @return All tags, newest first. */
+    synchronized Result all() {
+        final int count = size;
+        return new Result() {
+            @Override
+            public int size() {
+                return count;
+            }
+
+            @Override
+            public int idAt(int position) {
+                return count - 1 - position;
+            }
+        };
+    }
+
+    /**
+     * Answers a query from the most selective index; remaining criteria are checked
+     * only against that index's candidates.
+     */
+    synchronized Result search(Query query) {
+        if (query.isEmpty()) return all();
+        int minRssi = Math.max(query.minRssi, MIN_RSSI);
+        int maxRssi = Math.min(query.maxRssi, MAX_RSSI);
+        if (minRssi > maxRssi) return EMPTY;
+
+        boolean hasPrefix = query.epcPrefix != null && !query.epcPrefix.isEmpty();
+        boolean hasRssi = minRssi > MIN_RSSI || maxRssi < MAX_RSSI;
+
+        // Candidate counts per index, all cheap to compute
+        int prefixFrom = 0;
+        int prefixTo = size;
+        if (hasPrefix) {
+            prefixFrom = lowerBound(query.epcPrefix, false);
+            prefixTo = lowerBound(query.epcPrefix, true);
+        }
+        IdList gtinIds = null;
+        if (query.gtin != null) {
+            gtinIds = idsByGtin.get(query.gtin);
+            if (gtinIds == null) return EMPTY;
+        }
+        int rssiCount = 0;
+        if (hasRssi) {
+            for (int r = minRssi; r <= maxRssi; r++) {
+                rssiCount += rssiBuckets[bucket(r)].size;
+            }
+        }
+
+        if (hasPrefix && gtinIds == null && !hasRssi) {
+            return new SortedRange(sortedByEpc, prefixFrom, prefixTo);
+        }
+
+        int candidates = Integer.MAX_VALUE;
+        int source = 0;
+        if (hasPrefix) {
+            candidates = prefixTo - prefixFrom;
+            source = 1;
+        }
+        if (gtinIds != null && gtinIds.size < candidates) {
+            candidates = gtinIds.size;
+            source = 2;
+        }
+        if (hasRssi && rssiCount < candidates) {
+            source = 3;
+        }
+
+        IdList matches = new IdList();
+        // The source index already satisfies its own criterion
+        String prefix = source == 1 ? null : query.epcPrefix;
+        String gtin = source == 2 ? null : query.gtin;
+        if (source == 1) {
+            for (int i = prefixFrom; i < prefixTo; i++) {
+                collect(sortedByEpc[i], prefix, gtin, minRssi, maxRssi, matches);
+            }
+        } else if (source == 2) {
+            for (int i = 0; i < gtinIds.size; i++) {
+                collect(gtinIds.ids[i], prefix, gtin, minRssi, maxRssi, matches);
+            }
+        } else {
+            // Strongest first
+            for (int r = maxRssi; r >= minRssi; r--) {
+                IdList bucket = rssiBuckets[bucket(r)];
+                for (int i = 0; i < bucket.size; i++) {
+                    collect(bucket.ids[i], prefix, gtin, minRssi, maxRssi, matches);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void collect(int id, String prefix, String gtin, int minRssi, int maxRssi, IdList out) {
+        if (rssi[id] < minRssi || rssi[id] > maxRssi) return;
+        if (prefix != null && !epcs[id].startsWith(prefix)) return;
+        if (gtin != null && !gtin.equals(sgtin96ToGtin(epcs[id]))) return;
+        out.add(id);
+    }
+
+    /**
+     * @param after False for the first EPC starting with or greater than the prefix,
+     *              true for the first EPC past all EPCs starting with it.
+     */
+    private int lowerBound(String prefix, boolean after) {
+        int lo = 0;
+        int hi = sortedByEpc.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = comparePrefix(epcs[sortedByEpc[mid]], prefix);
+            if (cmp < 0 || (after && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Compares an EPC with a prefix; 0 if the EPC starts with it. */
+    private static int comparePrefix(String epc, String prefix) {
+        int n = Math.min(epc.length(), prefix.length());
+        for (int i = 0; i < n; i++) {
+            int diff = epc.charAt(i) - prefix.charAt(i);
+            if (diff != 0) return diff;
+        }
+        return epc.length() < prefix.length() ? -1 : 0;
+    }
+
+    /**
+     * Merges the ids added by this batch into a new sorted array. Insert positions are
+     * binary searched so string comparisons scale with the batch, not the session.
+     */
+    private void mergeSorted() {
+        added.sort((x, y) -> epcs[x].compareTo(epcs[y]));
+        int[] old = sortedByEpc;
+        int[] merged = new int[old.length + added.size()];
+        int from = 0;
+        int out = 0;
+        for (int j = 0; j < added.size(); j++) {
+            int id = added.get(j);
+            int at = insertPosition(old, from, epcs[id]);
+            System.arraycopy(old, from, merged, out, at - from);
+            out += at - from;
+            merged[out++] = id;
+            from = at;
+        }
+        System.arraycopy(old, from, merged, out, old.length - from);
+        sortedByEpc = merged;
+    }
+
+    private int insertPosition(int[] sorted, int from, String epc) {
+        int lo = from;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epcs[sorted[mid]].compareTo(epc) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void moveBucket(int id, short peak) {
+        IdList from = rssiBuckets[bucket(rssi[id])];
+        IdList to = rssiBuckets[bucket(peak)];
+        rssi[id] = peak;
+        if (from == to) return;
+        int slot = bucketSlot[id];
+        int last = from.ids[--from.size];
+        from.ids[slot] = last;
+        bucketSlot[last] = slot;
+        bucketSlot[id] = to.size;
+        to.add(id);
+    }
+
+    private static int bucket(int rssi) {
+        return Math.max(MIN_RSSI, Math.min(MAX_RSSI, rssi)) - MIN_RSSI;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= epcs.length) return;
+        int newCapacity = Math.max(capacity, epcs.length * 2);
+        epcs = Arrays.copyOf(epcs, newCapacity);
+        rssi = Arrays.copyOf(rssi, newCapacity);
+        bucketSlot = Arrays.copyOf(bucketSlot, newCapacity);
+    }
+
+    // SGTIN-96 partition table: company prefix bits and digits
+    private static final int[] COMPANY_BITS = {40, 37, 34, 30, 27, 24, 20};
+    private static final int[] COMPANY_DIGITS = {12, 11, 10, 9, 8, 7, 6};
+    private static final int SGTIN_96_HEADER = 0x30;
+
+    /**
+     * Decodes the GTIN-14 of an SGTIN-96 EPC.
+     * @param epc EPC in hex.
+     * @return The GTIN, or null if the EPC is not SGTIN-96.
+     */
+    static String sgtin96ToGtin(String epc) {
+        if (epc.length() != 24) return null;
+        long high;
+        try {
+            high = Long.parseUnsignedLong(epc.substring(0, 16), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if ((int) (high >>> 56) != SGTIN_96_HEADER) return null;
+        int partition = (int) (high >>> 50) & 0x7;
+        if (partition >= COMPANY_BITS.length) return null;
+        long payload = (high >>> 6) & ((1L << 44) - 1);
+        int itemBits = 44 - COMPANY_BITS[partition];
+        long company = payload >>> itemBits;
+        long item = payload & ((1L << itemBits) - 1);
+        int companyDigits = COMPANY_DIGITS[partition];
+        String companyText = pad(company, companyDigits);
+        String itemText = pad(item, 13 - companyDigits);
+        if (companyText == null || itemText == null) return null;
+        String digits = itemText.charAt(0) + companyText + itemText.substring(1);
+        return digits + checkDigit(digits);
+    }
+
+    private static String pad(long value, int digits) {
+        String text = Long.toString(value);
+        if (text.length() > digits) return null;
+        StringBuilder sb = new StringBuilder(digits);
+        for (int i = text.length(); i < digits; i++) sb.append('0');
+        return sb.append(text).toString();
+    }
+
+    private static int checkDigit(String digits) {
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int weight = (digits.length() - i) % 2 == 1 ? 3 : 1;
+            sum += (digits.charAt(i) - '0') * weight;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static String normalizeGtin(String text) {
+        if (text.isEmpty() || text.length() > 14 || !isDigits(text)) return null;
+        StringBuilder sb = new StringBuilder(14);
+        for (int i = text.length(); i < 14; i++) sb.append('0');
+        return sb.append(text).toString();
+    }
+
+    private static boolean isDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isHex(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    /** Growable id array; also a result when a query needs filtering. */
+    private static final class IdList implements Result {
+        int[] ids = new int[16];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int idAt(int position) {
+            return ids[position];
+        }
+    }
+
+    /** A range of a sorted id array snapshot. */
+    private static final class SortedRange implements Result {
+        private final int[] sorted;
+        private final int from;
+        private final int to;
+
+        SortedRange(int[] sorted, int from, int to) {
+            this.sorted = sorted;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public int idAt(int position) {
+            return sorted[from + position];
+        }
+    }
+
+}
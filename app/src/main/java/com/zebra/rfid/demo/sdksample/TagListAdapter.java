@@ -0,0 +1,63 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+/**
+ * List adapter over a {@link TagIndex.Result}. Rows are formatted only when the
+ * ListView asks for them, so a filter over tens of thousands of tags never builds
+ * a filtered list of strings.
+ */
+class TagListAdapter extends BaseAdapter {
+
+    private final LayoutInflater inflater;
+    private final TagIndex index;
+    private final StringBuilder rowBuilder = new StringBuilder(48);
+    private TagIndex.Result result;
+
+    TagListAdapter(Context context, TagIndex index) {
+        this.inflater = LayoutInflater.from(context);
+        this.index = index;
+        this.result = index.all();
+    }
+
+    /**
+     * Shows a new result. Must be called on the main thread.
+     * @param result Ids to show, in display order.
+     */
+    void setResult(TagIndex.Result result) {
+        this.result = result;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return result.size();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return index.getEpc(result.idAt(position));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return result.idAt(position);
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View view = convertView != null
+                ? convertView : inflater.inflate(android.R.layout.simple_list_item_1, parent, false);
+        TextView text = view.findViewById(android.R.id.text1);
+        int id = result.idAt(position);
+        rowBuilder.setLength(0);
+        rowBuilder.append(index.getEpc(id)).append(" (RSSI: ").append(index.getPeakRssi(id)).append(')');
+        text.setText(rowBuilder.toString());
+        return view;
+    }
+}
@@ -0,0 +1,202 @@
+package com.zebra.rfid.demo.sdksample;
+
+import com.zebra.rfid.api3.TagData;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide aggregate of the current inventory session, one entry per EPC.
+ * Entries are stored column-wise and only ever appended until the session is
+ * reset, so an entry's index is a stable cursor position for paging. Listeners
+ * are told which indices each batch touched and must not block: they run on
+ * the ingest thread.
+ */
+class TagSession {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final TagSession INSTANCE = new TagSession();
+
+    /** Receives session changes on the ingest thread. */
+    interface Listener {
+        /**
+         * @param indices Indices of new or updated entries; only valid during the call.
+         * @param count Number of valid indices.
+         */
+        void onEntriesChanged(int[] indices, int count);
+
+        /**
+         * @param sessionId Id of the new, empty session.
+         */
+        void onSessionReset(long sessionId);
+    }
+
+    /** Column-wise copy of a set of entries. */
+    static final class Entries {
+        final long sessionId;
+        final int[] indices;
+        final String[] epcs;
+        final int[] readCounts;
+        final short[] peakRssi;
+        final short[] antennas;
+        final long[] lastSeenMs;
+
+        Entries(long sessionId, int count) {
+            this.sessionId = sessionId;
+            indices = new int[count];
+            epcs = new String[count];
+            readCounts = new int[count];
+            peakRssi = new short[count];
+            antennas = new short[count];
+            lastSeenMs = new long[count];
+        }
+
+        int size() {
+            return epcs.length;
+        }
+    }
+
+    private final Map<String, Integer> indexByEpc = new HashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Columns, guarded by this
+    private String[] epcs = new String[INITIAL_CAPACITY];
+    private int[] readCounts = new int[INITIAL_CAPACITY];
+    private short[] peakRssi = new short[INITIAL_CAPACITY];
+    private short[] antennas = new short[INITIAL_CAPACITY];
+    private long[] lastSeenMs = new long[INITIAL_CAPACITY];
+    /** Batch that last touched each entry, so an EPC read twice in a batch is reported once. */
+    private int[] lastBatch = new int[INITIAL_CAPACITY];
+    private int batch;
+    private int size;
+    private long sessionId = 1;
+    /** Scratch for the indices touched by one batch. */
+    private int[] changed = new int[64];
+
+    static TagSession get() {
+        return INSTANCE;
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Folds a batch of reads into the session and notifies listeners once for the batch.
+     * @param tags Tag reads from the reader.
+     * @param nowMs Time of the batch in milliseconds.
+     */
+    synchronized void ingest(TagData[] tags, long nowMs) {
+        batch++;
+        if (changed.length < tags.length) changed = new int[tags.length];
+        int count = 0;
+        for (TagData tag : tags) {
+            if (tag == null || tag.getTagID() == null) continue;
+            String epc = tag.getTagID();
+            Integer existing = indexByEpc.get(epc);
+            int index;
+            if (existing == null) {
+                index = size++;
+                ensureCapacity(size);
+                indexByEpc.put(epc, index);
+                epcs[index] = epc;
+                peakRssi[index] = tag.getPeakRSSI();
+            } else {
+                index = existing;
+                if (tag.getPeakRSSI() > peakRssi[index]) peakRssi[index] = tag.getPeakRSSI();
+            }
+            if (lastBatch[index] != batch) {
+                lastBatch[index] = batch;
+                changed[count++] = index;
+            }
+            readCounts[index]++;
+            antennas[index] = tag.getAntennaID();
+            lastSeenMs[index] = nowMs;
+        }
+        if (count == 0) return;
+        for (Listener listener : listeners) {
+            listener.onEntriesChanged(changed, count);
+        }
+    }
+
+    /** Drops all entries and starts a new session; outstanding cursors become invalid. */
+    synchronized void reset() {
+        indexByEpc.clear();
+        Arrays.fill(epcs, 0, size, null);
+        Arrays.fill(readCounts, 0, size, 0);
+        Arrays.fill(lastBatch, 0, size, 0);
+        size = 0;
+        sessionId++;
+        for (Listener listener : listeners) {
+            listener.onSessionReset(sessionId);
+        }
+    }
+
+    synchronized long getSessionId() {
+        return sessionId;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Copies a page of entries in cursor order.
+     * @param offset Index of the first entry.
+     * @param limit Maximum number of entries.
+     */
+    synchronized Entries page(int offset, int limit) {
+        int from = Math.max(0, Math.min(offset, size));
+        int count = Math.max(0, Math.min(limit, size - from));
+        Entries entries = new Entries(sessionId, count);
+        for (int i = 0; i < count; i++) {
+            copy(from + i, entries, i);
+        }
+        return entries;
+    }
+
+    /**
+     * Copies the specified entries; indices beyond the current session are skipped.
+     * @param indices Entry indices.
+     * @param count Number of valid indices.
+     */
+    synchronized Entries select(int[] indices, int count) {
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            if (indices[i] < size) valid++;
+        }
+        Entries entries = new Entries(sessionId, valid);
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            if (indices[i] < size) copy(indices[i], entries, out++);
+        }
+        return entries;
+    }
+
+    private void copy(int index, Entries entries, int position) {
+        entries.indices[position] = index;
+        entries.epcs[position] = epcs[index];
+        entries.readCounts[position] = readCounts[index];
+        entries.peakRssi[position] = peakRssi[index];
+        entries.antennas[position] = antennas[index];
+        entries.lastSeenMs[position] = lastSeenMs[index];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= epcs.length) return;
+        int newCapacity = Math.max(capacity, epcs.length * 2);
+        epcs = Arrays.copyOf(epcs, newCapacity);
+        readCounts = Arrays.copyOf(readCounts, newCapacity);
+        peakRssi = Arrays.copyOf(peakRssi, newCapacity);
+        antennas = Arrays.copyOf(antennas, newCapacity);
+        lastSeenMs = Arrays.copyOf(lastSeenMs, newCapacity);
+        lastBatch = Arrays.copyOf(lastBatch, newCapacity);
+    }
+}
@@ -0,0 +1,360 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bound service that shares the current inventory session ({@link TagSession}) with
+ * other apps on the device over a {@link Messenger}.
+ *
+ * <p>Clients either subscribe to deltas or page through a snapshot:
+ * <ul>
+ *     <li>{@link #MSG_SUBSCRIBE}: arg1 is the maximum entries per delta, arg2 the number of
+ *     unacknowledged deltas the client accepts. Deltas arrive as {@link #MSG_DELTA} and each
+ *     must be answered with {@link #MSG_ACK}. Set {@link #KEY_INCLUDE_SNAPSHOT} to receive the
+ *     existing entries as deltas first.</li>
+ *     <li>{@link #MSG_GET_PAGE}: arg1 is the page size; {@link #KEY_SESSION_ID} and
+ *     {@link #KEY_OFFSET} form the cursor. Answered with {@link #MSG_PAGE}, whose
+ *     {@link #KEY_OFFSET} is the next cursor position or -1 at the end.</li>
+ * </ul>
+ * Entries travel column-wise in one Bundle per message so IPC cost scales with batches, not tags.
+ * Each subscriber has a bitmap of changed entries: ingest only sets bits, and a client that
+ * stops acknowledging just accumulates bits, so a slow client costs one bit per entry and never
+ * slows ingest or other clients. {@link #MSG_SESSION_RESET} tells clients their cursors and
+ * entries are stale; deltas sent before it still count against the window until acknowledged.
+ * Subscribers whose process dies are dropped through a death link.
+ */
+public class TagStreamService extends Service {
+
+    private static final String TAG = "TagStreamService";
+
+    // Client to service
+    public static final int MSG_SUBSCRIBE = 1;
+    public static final int MSG_UNSUBSCRIBE = 2;
+    public static final int MSG_ACK = 3;
+    public static final int MSG_GET_PAGE = 4;
+
+    // Service to client
+    public static final int MSG_SUBSCRIBED = 101;
+    public static final int MSG_DELTA = 102;
+    public static final int MSG_PAGE = 103;
+    public static final int MSG_SESSION_RESET = 104;
+
+    public static final String KEY_SESSION_ID = "session_id";
+    public static final String KEY_OFFSET = "offset";
+    public static final String KEY_SIZE = "size";
+    public static final String KEY_INCLUDE_SNAPSHOT = "include_snapshot";
+    public static final String KEY_INDICES = "indices";
+    public static final String KEY_EPCS = "epcs";
+    public static final String KEY_READ_COUNTS = "read_counts";
+    public static final String KEY_PEAK_RSSI = "peak_rssi";
+    public static final String KEY_ANTENNAS = "antennas";
+    public static final String KEY_LAST_SEEN = "last_seen_ms";
+
+    // Keeps a message well below the 1 MB Binder transaction limit
+    private static final int MAX_ENTRIES_PER_MESSAGE = 1000;
+    private static final int DEFAULT_ENTRIES_PER_MESSAGE = 200;
+    private static final int MAX_IN_FLIGHT = 8;
+    private static final int DEFAULT_IN_FLIGHT = 2;
+
+    private static final int MSG_DRAIN = 1000;
+
+    /** Per-subscriber delivery state. The bitmap is guarded by the client, the rest is service-thread only. */
+    private static final class Client {
+        final Messenger messenger;
+        IBinder.DeathRecipient deathRecipient;
+        final int maxEntries;
+        final int window;
+        final BitSet dirty = new BitSet();
+        int inFlight;
+        int[] scratch;
+
+        Client(Messenger messenger, int maxEntries, int window) {
+            this.messenger = messenger;
+            this.maxEntries = maxEntries;
+            this.window = window;
+            scratch = new int[maxEntries];
+        }
+    }
+
+    private final Map<IBinder, Client> clients = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final TagSession session = TagSession.get();
+
+    private HandlerThread thread;
+    private Handler handler;
+    private Messenger messenger;
+
+    private final TagSession.Listener sessionListener = new TagSession.Listener() {
+        @Override
+        public void onEntriesChanged(int[] indices, int count) {
+            if (clients.isEmpty()) return;
+            for (Client client : clients.values()) {
+                synchronized (client) {
+                    for (int i = 0; i < count; i++) {
+                        client.dirty.set(indices[i]);
+                    }
+                }
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void onSessionReset(long sessionId) {
+            for (Client client : clients.values()) {
+                synchronized (client) {
+                    client.dirty.clear();
+                }
+            }
+            handler.post(() -> broadcastReset(sessionId));
+        }
+    };
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        thread = new HandlerThread("TagStream");
+        thread.start();
+        handler = new IncomingHandler(thread.getLooper());
+        messenger = new Messenger(handler);
+        session.addListener(sessionListener);
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return messenger.getBinder();
+    }
+
+    @Override
+    public void onDestroy() {
+        session.removeListener(sessionListener);
+        for (Client client : clients.values()) {
+            unlink(client);
+        }
+        clients.clear();
+        thread.quitSafely();
+        super.onDestroy();
+    }
+
+    private final class IncomingHandler extends Handler {
+        IncomingHandler(Looper looper) {
+            super(looper);
+        }
+
+        @Override
+        public void handleMessage(Message msg) {
+            switch (msg.what) {
+                case MSG_SUBSCRIBE:
+                    subscribe(msg);
+                    break;
+                case MSG_UNSUBSCRIBE:
+                    if (msg.replyTo != null) remove(msg.replyTo.getBinder());
+                    break;
+                case MSG_ACK:
+                    acknowledge(msg);
+                    break;
+                case MSG_GET_PAGE:
+                    sendPage(msg);
+                    break;
+                case MSG_DRAIN:
+                    drain();
+                    break;
+                default:
+                    super.handleMessage(msg);
+            }
+        }
+    }
+
+    private void subscribe(Message msg) {
+        if (msg.replyTo == null) return;
+        int maxEntries = clamp(msg.arg1, DEFAULT_ENTRIES_PER_MESSAGE, MAX_ENTRIES_PER_MESSAGE);
+        int window = clamp(msg.arg2, DEFAULT_IN_FLIGHT, MAX_IN_FLIGHT);
+        Client client = new Client(msg.replyTo, maxEntries, window);
+        Bundle data = msg.peekData();
+        boolean includeSnapshot = data != null && data.getBoolean(KEY_INCLUDE_SNAPSHOT);
+
+        long sessionId;
+        int size;
+        // Registering and marking the snapshot under the session lock means no batch falls in between
+        synchronized (session) {
+            sessionId = session.getSessionId();
+            size = session.size();
+            if (includeSnapshot && size > 0) client.dirty.set(0, size);
+            Client previous = clients.put(msg.replyTo.getBinder(), client);
+            if (previous != null) unlink(previous);
+        }
+        if (!linkToDeath(msg.replyTo.getBinder(), client)) return;
+
+        Message reply = Message.obtain(null, MSG_SUBSCRIBED);
+        Bundle replyData = new Bundle();
+        replyData.putLong(KEY_SESSION_ID, sessionId);
+        replyData.putInt(KEY_SIZE, size);
+        reply.setData(replyData);
+        if (send(client, reply)) drain();
+    }
+
+    private void acknowledge(Message msg) {
+        if (msg.replyTo == null) return;
+        Client client = clients.get(msg.replyTo.getBinder());
+        if (client == null) return;
+        if (client.inFlight > 0) client.inFlight--;
+        drain();
+    }
+
+    private void sendPage(Message msg) {
+        if (msg.replyTo == null) return;
+        Bundle data = msg.peekData();
+        long sessionId = data != null ? data.getLong(KEY_SESSION_ID) : 0;
+        int offset = data != null ? data.getInt(KEY_OFFSET) : 0;
+        int pageSize = clamp(msg.arg1, DEFAULT_ENTRIES_PER_MESSAGE, MAX_ENTRIES_PER_MESSAGE);
+
+        TagSession.Entries entries = session.page(offset, pageSize);
+        Message reply;
+        if (sessionId != 0 && sessionId != entries.sessionId) {
+            reply = resetMessage(entries.sessionId);
+        } else {
+            reply = Message.obtain(null, MSG_PAGE);
+            Bundle replyData = toBundle(entries);
+            int next = offset + entries.size();
+            replyData.putInt(KEY_OFFSET, entries.size() < pageSize ? -1 : next);
+            reply.setData(replyData);
+        }
+        try {
+            msg.replyTo.send(reply);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Page client gone", e);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            handler.sendEmptyMessage(MSG_DRAIN);
+        }
+    }
+
+    /** Sends deltas to every client with room in its window. Runs on the service thread. */
+    private void drain() {
+        drainScheduled.set(false);
+        for (Client client : clients.values()) {
+            while (client.inFlight < client.window) {
+                int count = takeDirty(client);
+                if (count == 0) break;
+                TagSession.Entries entries = session.select(client.scratch, count);
+                if (entries.size() == 0) continue;
+                Message delta = Message.obtain(null, MSG_DELTA);
+                delta.setData(toBundle(entries));
+                if (!send(client, delta)) break;
+                client.inFlight++;
+            }
+        }
+    }
+
+    /** Moves up to {@code maxEntries} dirty indices into the client's scratch array. */
+    private static int takeDirty(Client client) {
+        synchronized (client) {
+            int count = 0;
+            for (int i = client.dirty.nextSetBit(0); i >= 0 && count < client.maxEntries;
+                 i = client.dirty.nextSetBit(i + 1)) {
+                client.scratch[count++] = i;
+                client.dirty.clear(i);
+            }
+            return count;
+        }
+    }
+
+    private void broadcastReset(long sessionId) {
+        // Deltas still in flight keep their window slots; their acknowledgements release them
+        for (Client client : clients.values()) {
+            send(client, resetMessage(sessionId));
+        }
+    }
+
+    /** Sends to a subscriber, dropping it if its process is gone. */
+    private boolean send(Client client, Message message) {
+        try {
+            client.messenger.send(message);
+            return true;
+        } catch (RemoteException e) {
+            Log.w(TAG, "Dropping subscriber", e);
+            drop(client);
+            return false;
+        }
+    }
+
+    /**
+     * Drops the subscriber as soon as its process dies rather than at the next failed send.
+     * @return False if the process is already gone, in which case the subscriber was dropped.
+     */
+    private boolean linkToDeath(IBinder binder, Client client) {
+        IBinder.DeathRecipient recipient = () -> handler.post(() -> {
+            if (clients.remove(binder, client)) Log.d(TAG, "Subscriber died");
+        });
+        try {
+            binder.linkToDeath(recipient, 0);
+            client.deathRecipient = recipient;
+            return true;
+        } catch (RemoteException e) {
+            Log.w(TAG, "Subscriber died before registering", e);
+            clients.remove(binder, client);
+            return false;
+        }
+    }
+
+    private void remove(IBinder binder) {
+        Client client = clients.remove(binder);
+        if (client != null) unlink(client);
+    }
+
+    private void drop(Client client) {
+        for (Iterator<Client> it = clients.values().iterator(); it.hasNext(); ) {
+            if (it.next() == client) it.remove();
+        }
+        unlink(client);
+    }
+
+    private static void unlink(Client client) {
+        if (client.deathRecipient == null) return;
+        client.messenger.getBinder().unlinkToDeath(client.deathRecipient, 0);
+        client.deathRecipient = null;
+    }
+
+    private static Message resetMessage(long sessionId) {
+        Message message = Message.obtain(null, MSG_SESSION_RESET);
+        Bundle data = new Bundle();
+        data.putLong(KEY_SESSION_ID, sessionId);
+        message.setData(data);
+        return message;
+    }
+
+    private static Bundle toBundle(TagSession.Entries entries) {
+        Bundle data = new Bundle();
+        data.putLong(KEY_SESSION_ID, entries.sessionId);
+        data.putIntArray(KEY_INDICES, entries.indices);
+        data.putStringArray(KEY_EPCS, entries.epcs);
+        data.putIntArray(KEY_READ_COUNTS, entries.readCounts);
+        data.putShortArray(KEY_PEAK_RSSI, entries.peakRssi);
+        data.putShortArray(KEY_ANTENNAS, entries.antennas);
+        data.putLongArray(KEY_LAST_SEEN, entries.lastSeenMs);
+        return data;
+    }
+
+    private static int clamp(int value, int defaultValue, int max) {
+        if (value <= 0) return defaultValue;
+        return Math.min(value, max);
+    }
+}
@@ -0,0 +1,177 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.util.Log;
+
+import com.zebra.rfid.api3.TagData;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records the raw reader and scanner event stream into a compact binary trace.
+ * Traces are replayed with {@link TraceReplayer} to reproduce field problems.
+ *
+ * <p>Format: magic, version, then records of {@code type byte, varint micros since start, payload}.
+ * Read batches store per tag the EPC as length-prefixed packed nibbles, peak RSSI and antenna id.
+ * Every length written is within the {@code MAX_} limits below, which the replayer enforces.
+ */
+class TraceRecorder {
+
+    private static final String TAG = "TraceRecorder";
+
+    static final int MAGIC = 0x52465452; // "RFTR"
+    static final int VERSION = 1;
+    static final int TYPE_READ_BATCH = 1;
+    static final int TYPE_TRIGGER = 2;
+    static final int TYPE_DISCONNECT = 3;
+    static final int TYPE_BARCODE = 4;
+
+    /** Largest read batch in one record; bigger batches are split. */
+    static final int MAX_BATCH_TAGS = 4096;
+    /** Longest tag id recorded, in hex digits; longer ids are left out. */
+    static final int MAX_TAG_ID_NIBBLES = 256;
+    /** Largest barcode recorded; larger ones are left out. */
+    static final int MAX_BARCODE_BYTES = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private DataOutputStream out;
+    private long startNanos;
+    private volatile boolean recording;
+
+    /**
+     * Starts a new trace, replacing any existing file.
+     * @param file Destination trace file.
+     * @throws IOException If the file cannot be created.
+     */
+    synchronized void start(File file) throws IOException {
+        stop();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        startNanos = System.nanoTime();
+        recording = true;
+    }
+
+    /** Flushes and closes the current trace, if any. */
+    synchronized void stop() {
+        recording = false;
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing trace", e);
+        }
+        out = null;
+    }
+
+    boolean isRecording() {
+        return recording;
+    }
+
+    void recordReadBatch(TagData[] tags) {
+        if (!recording || tags == null) return;
+        synchronized (this) {
+            if (out == null) return;
+            try {
+                int total = 0;
+                for (TagData tag : tags) {
+                    if (isRecordable(tag)) total++;
+                }
+                int next = 0;
+                do {
+                    int count = Math.min(total, MAX_BATCH_TAGS);
+                    total -= count;
+                    writeHeader(TYPE_READ_BATCH);
+                    writeVarLong(count);
+                    for (int written = 0; written < count; next++) {
+                        TagData tag = tags[next];
+                        if (!isRecordable(tag)) continue;
+                        writeHex(tag.getTagID());
+                        out.writeShort(tag.getPeakRSSI());
+                        out.writeShort(tag.getAntennaID());
+                        written++;
+                    }
+                } while (total > 0);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    void recordTrigger(boolean pressed) {
+        if (!recording) return;
+        synchronized (this) {
+            if (out == null) return;
+            try {
+                writeHeader(TYPE_TRIGGER);
+                out.writeBoolean(pressed);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    void recordDisconnect() {
+        if (!recording) return;
+        synchronized (this) {
+            if (out == null) return;
+            try {
+                writeHeader(TYPE_DISCONNECT);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    void recordBarcode(byte[] data, int symbologyId) {
+        if (!recording || data == null || data.length > MAX_BARCODE_BYTES) return;
+        synchronized (this) {
+            if (out == null) return;
+            try {
+                writeHeader(TYPE_BARCODE);
+                writeVarLong(symbologyId + 1L);
+                writeVarLong(data.length);
+                out.write(data);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    private static boolean isRecordable(TagData tag) {
+        return tag != null && tag.getTagID() != null && tag.getTagID().length() <= MAX_TAG_ID_NIBBLES;
+    }
+
+    private void writeHeader(int type) throws IOException {
+        out.writeByte(type);
+        writeVarLong((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /** Writes a hex string as its nibble count followed by packed nibbles. */
+    private void writeHex(String hex) throws IOException {
+        int nibbles = hex.length();
+        writeVarLong(nibbles);
+        for (int i = 0; i < nibbles; i += 2) {
+            int hi = Character.digit(hex.charAt(i), 16);
+            int lo = i + 1 < nibbles ? Character.digit(hex.charAt(i + 1), 16) : 0;
+            out.writeByte(((hi & 0xF) << 4) | (lo & 0xF));
+        }
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private void fail(IOException e) {
+        Log.e(TAG, "Error writing trace, recording stopped", e);
+        stop();
+    }
+}
@@ -0,0 +1,208 @@
+package com.zebra.rfid.demo.sdksample;
+
+import com.zebra.rfid.api3.TagData;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Replays a trace written by {@link TraceRecorder} through a
+ * {@link RFIDHandler.ResponseHandlerInterface} at recorded speed, a multiple of it, or as fast as possible.
+ * Has no Android dependencies so traces can be replayed on a desktop JVM from the unit tests.
+ */
+class TraceReplayer {
+
+    /** Speed value that replays without any pacing. */
+    static final double MAX_SPEED = 0;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /** Throughput and latency of one replay. */
+    static final class Report {
+        long records;
+        long readBatches;
+        long tags;
+        long triggers;
+        long disconnects;
+        long barcodes;
+        long wallMs;
+        long totalDispatchMicros;
+        long maxDispatchMicros;
+        long maxLagMicros;
+
+        double tagsPerSecond() {
+            return wallMs == 0 ? tags * 1000.0 : tags * 1000.0 / wallMs;
+        }
+
+        long avgDispatchMicros() {
+            return records == 0 ? 0 : totalDispatchMicros / records;
+        }
+
+        @Override
+        public String toString() {
+            return "Replayed " + records + " records (" + readBatches + " batches, " + tags + " tags, "
+                    + triggers + " triggers, " + disconnects + " disconnects, " + barcodes + " barcodes) in "
+                    + wallMs + " ms: " + Math.round(tagsPerSecond()) + " tags/s, dispatch avg "
+                    + avgDispatchMicros() + " us max " + maxDispatchMicros + " us, max lag " + maxLagMicros + " us";
+        }
+    }
+
+    private final RFIDHandler.ResponseHandlerInterface target;
+    private final Runnable onDisconnect;
+    private volatile boolean cancelled;
+
+    /**
+     * @param target Receives replayed tag batches, trigger presses and barcodes.
+     * @param onDisconnect Run for replayed disconnection events; may be null.
+     */
+    TraceReplayer(RFIDHandler.ResponseHandlerInterface target, Runnable onDisconnect) {
+        this.target = target;
+        this.onDisconnect = onDisconnect;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Replays a trace on the calling thread.
+     * @param file Trace file.
+     * @param speed Playback speed multiplier; {@link #MAX_SPEED} disables pacing.
+     * @return Replay report.
+     * @throws IOException If the trace cannot be read or is malformed.
+     */
+    Report replay(File file, double speed) throws IOException {
+        Report report = new Report();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != TraceRecorder.MAGIC) throw new IOException("Not a trace file: " + file);
+            int version = in.readUnsignedByte();
+            if (version != TraceRecorder.VERSION) throw new IOException("Unsupported trace version " + version);
+
+            long startNanos = System.nanoTime();
+            while (!cancelled) {
+                int type = in.read();
+                if (type < 0) break;
+                long atMicros = readVarLong(in);
+                TagData[] tags = null;
+                boolean pressed = false;
+                String barcode = null;
+                switch (type) {
+                    case TraceRecorder.TYPE_READ_BATCH:
+                        tags = readBatch(in);
+                        break;
+                    case TraceRecorder.TYPE_TRIGGER:
+                        pressed = in.readBoolean();
+                        break;
+                    case TraceRecorder.TYPE_DISCONNECT:
+                        break;
+                    case TraceRecorder.TYPE_BARCODE:
+                        readVarLong(in); // symbology id, not part of the handler interface
+                        byte[] data = new byte[readLength(in, TraceRecorder.MAX_BARCODE_BYTES)];
+                        in.readFully(data);
+                        barcode = new String(data, StandardCharsets.UTF_8);
+                        break;
+                    default:
+                        throw new IOException("Unknown record type " + type);
+                }
+
+                long lagMicros = pace(startNanos, atMicros, speed);
+                report.maxLagMicros = Math.max(report.maxLagMicros, lagMicros);
+
+                long dispatchStart = System.nanoTime();
+                switch (type) {
+                    case TraceRecorder.TYPE_READ_BATCH:
+                        report.readBatches++;
+                        report.tags += tags.length;
+                        target.handleTagdata(tags);
+                        break;
+                    case TraceRecorder.TYPE_TRIGGER:
+                        report.triggers++;
+                        target.handleTriggerPress(pressed);
+                        break;
+                    case TraceRecorder.TYPE_DISCONNECT:
+                        report.disconnects++;
+                        if (onDisconnect != null) onDisconnect.run();
+                        break;
+                    default:
+                        report.barcodes++;
+                        target.barcodeData(barcode);
+                        break;
+                }
+                long dispatchMicros = (System.nanoTime() - dispatchStart) / 1000;
+                report.records++;
+                report.totalDispatchMicros += dispatchMicros;
+                report.maxDispatchMicros = Math.max(report.maxDispatchMicros, dispatchMicros);
+            }
+            report.wallMs = (System.nanoTime() - startNanos) / 1_000_000;
+        } catch (EOFException e) {
+            throw new IOException("Truncated trace: " + file, e);
+        }
+        return report;
+    }
+
+    /**
+     * Sleeps until the record's scaled timestamp.
+     * @return How far behind schedule the record is, in microseconds.
+     */
+    private long pace(long startNanos, long atMicros, double speed) {
+        if (speed <= MAX_SPEED) return 0;
+        long dueMicros = (long) (atMicros / speed);
+        long nowMicros = (System.nanoTime() - startNanos) / 1000;
+        long waitMicros = dueMicros - nowMicros;
+        if (waitMicros <= 0) return -waitMicros;
+        try {
+            Thread.sleep(waitMicros / 1000, (int) (waitMicros % 1000) * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        }
+        return 0;
+    }
+
+    private static TagData[] readBatch(DataInputStream in) throws IOException {
+        int count = readLength(in, TraceRecorder.MAX_BATCH_TAGS);
+        TagData[] tags = new TagData[count];
+        char[] epc = new char[TraceRecorder.MAX_TAG_ID_NIBBLES];
+        for (int i = 0; i < count; i++) {
+            int nibbles = readLength(in, TraceRecorder.MAX_TAG_ID_NIBBLES);
+            for (int n = 0; n < nibbles; n += 2) {
+                int b = in.readUnsignedByte();
+                epc[n] = HEX[b >>> 4];
+                if (n + 1 < nibbles) epc[n + 1] = HEX[b & 0xF];
+            }
+            TagData tag = new TagData();
+            tag.setTagID(new String(epc, 0, nibbles));
+            tag.setPeakRSSI(in.readShort());
+            tag.setAntennaID(in.readShort());
+            tags[i] = tag;
+        }
+        return tags;
+    }
+
+    /**
+     * Reads a length and checks it against the recorder's limit before anything is allocated for it.
+     * @throws IOException If the length is larger than any recorder writes.
+     */
+    private static int readLength(DataInputStream in, int max) throws IOException {
+        long length = readVarLong(in);
+        if (length > max) throw new IOException("Corrupt trace: length " + length + " exceeds " + max);
+        return (int) length;
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+            if (shift > 63) throw new IOException("Malformed varint");
+        }
+    }
+}
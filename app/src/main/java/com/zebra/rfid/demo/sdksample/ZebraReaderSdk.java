@@ -0,0 +1,124 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.content.Context;
+
+import com.zebra.rfid.api3.ENUM_TRANSPORT;
+import com.zebra.rfid.api3.InvalidUsageException;
+import com.zebra.rfid.api3.OperationFailureException;
+import com.zebra.rfid.api3.RFIDReader;
+import com.zebra.rfid.api3.ReaderDevice;
+import com.zebra.rfid.api3.Readers;
+import com.zebra.rfid.api3.RfidEventsListener;
+import com.zebra.rfid.api3.TagData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ReaderSdk} over the RFID API3 SDK. Construction binds the transports and is slow,
+ * so create it off the main thread.
+ */
+class ZebraReaderSdk implements ReaderSdk {
+
+    private final Readers readers;
+
+    ZebraReaderSdk(Context context) {
+        readers = new Readers(context, ENUM_TRANSPORT.ALL);
+    }
+
+    @Override
+    public void attach(Readers.RFIDReaderEventHandler handler) {
+        Readers.attach(handler);
+    }
+
+    @Override
+    public List<Reader> getAvailableReaders() throws InvalidUsageException {
+        ArrayList<ReaderDevice> devices = readers.GetAvailableRFIDReaderList();
+        List<Reader> available = new ArrayList<>();
+        if (devices == null) return available;
+        for (ReaderDevice device : devices) {
+            if (device != null && device.getRFIDReader() != null) available.add(new ZebraReader(device));
+        }
+        return available;
+    }
+
+    @Override
+    public void dispose() {
+        readers.Dispose();
+    }
+
+    private static final class ZebraReader implements Reader {
+        private final String name;
+        private final RFIDReader reader;
+
+        ZebraReader(ReaderDevice device) {
+            name = device.getName();
+            reader = device.getRFIDReader();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getHostName() {
+            return reader.getHostName();
+        }
+
+        @Override
+        public boolean isConnected() {
+            return reader.isConnected();
+        }
+
+        @Override
+        public void connect() throws InvalidUsageException, OperationFailureException {
+            reader.connect();
+        }
+
+        @Override
+        public void disconnect() throws InvalidUsageException, OperationFailureException {
+            reader.disconnect();
+        }
+
+        @Override
+        public void dispose() throws Exception {
+            reader.Dispose();
+        }
+
+        @Override
+        public void registerEvents(RfidEventsListener listener) throws InvalidUsageException, OperationFailureException {
+            reader.Events.addEventsListener(listener);
+            reader.Events.setHandheldEvent(true);
+            reader.Events.setTagReadEvent(true);
+            // Tags are drained from the read buffer in bulk, not delivered one per event
+            reader.Events.setAttachTagDataWithReadEvent(false);
+            reader.Events.setReaderDisconnectEvent(true);
+        }
+
+        @Override
+        public void removeEventsListener(RfidEventsListener listener) throws InvalidUsageException, OperationFailureException {
+            reader.Events.removeEventsListener(listener);
+        }
+
+        @Override
+        public void performInventory() throws InvalidUsageException, OperationFailureException {
+            reader.Actions.Inventory.perform();
+        }
+
+        @Override
+        public void stopInventory() throws InvalidUsageException, OperationFailureException {
+            reader.Actions.Inventory.stop();
+        }
+
+        @Override
+        public TagData[] getReadTags(int max) {
+            return reader.Actions.getReadTags(max);
+        }
+
+        @Override
+        public RFIDReader getRFIDReader() {
+            return reader;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.zebra.rfid.demo.sdksample;
+
+import android.content.Context;
+
+import com.zebra.scannercontrol.DCSSDKDefs;
+import com.zebra.scannercontrol.DCSScannerInfo;
+import com.zebra.scannercontrol.IDcsSdkApiDelegate;
+import com.zebra.scannercontrol.SDKHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** {@link ScannerSdk} over the Scanner Control SDK. */
+class ZebraScannerSdk implements ScannerSdk {
+
+    private final SDKHandler sdkHandler;
+
+    ZebraScannerSdk(Context context) {
+        sdkHandler = new SDKHandler(context);
+    }
+
+    @Override
+    public void start(IDcsSdkApiDelegate delegate) {
+        sdkHandler.dcssdkSetOperationalMode(DCSSDKDefs.DCSSDK_MODE.DCSSDK_OPMODE_USB_CDC);
+        sdkHandler.dcssdkSetOperationalMode(DCSSDKDefs.DCSSDK_MODE.DCSSDK_OPMODE_BT_NORMAL);
+        sdkHandler.dcssdkSetDelegate(delegate);
+        int notificationsMask = DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_SCANNER_APPEARANCE.value |
+            DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_SCANNER_DISAPPEARANCE.value |
+            DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_BARCODE.value |
+            DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_SESSION_ESTABLISHMENT.value |
+            DCSSDKDefs.DCSSDK_EVENT.DCSSDK_EVENT_SESSION_TERMINATION.value;
+        sdkHandler.dcssdkSubsribeForEvents(notificationsMask);
+    }
+
+    @Override
+    public List<ScannerInfo> getAvailableScanners() {
+        List<DCSScannerInfo> scanners = sdkHandler.dcssdkGetAvailableScannersList();
+        List<ScannerInfo> available = new ArrayList<>();
+        if (scanners == null) return available;
+        for (DCSScannerInfo scanner : scanners) {
+            if (scanner != null) available.add(new ScannerInfo(scanner.getScannerID(), scanner.getScannerName()));
+        }
+        return available;
+    }
+
+    @Override
+    public DCSSDKDefs.DCSSDK_RESULT establishSession(int scannerId) {
+        return sdkHandler.dcssdkEstablishCommunicationSession(scannerId);
+    }
+
+    @Override
+    public DCSSDKDefs.DCSSDK_RESULT terminateSession(int scannerId) {
+        return sdkHandler.dcssdkTerminateCommunicationSession(scannerId);
+    }
+
+    @Override
+    public DCSSDKDefs.DCSSDK_RESULT executeCommand(DCSSDKDefs.DCSSDK_COMMAND_OPCODE opCode, String inXml,
+                                                  StringBuilder outXml, int scannerId) {
+        return sdkHandler.dcssdkExecuteCommandOpCodeInXMLForScanner(opCode, inXml, outXml, scannerId);
+    }
+}
@@ -0,0 +1,478 @@
+package com.zebra.rfid.demo.sdksample;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+
+import com.zebra.rfid.api3.InvalidUsageException;
+import com.zebra.rfid.api3.RFIDReader;
+import com.zebra.rfid.api3.Readers;
+import com.zebra.rfid.api3.RfidEventsListener;
+import com.zebra.rfid.api3.RfidReadEvents;
+import com.zebra.rfid.api3.TagData;
+import com.zebra.scannercontrol.DCSSDKDefs;
+import com.zebra.scannercontrol.DCSScannerInfo;
+import com.zebra.scannercontrol.IDcsSdkApiDelegate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Endurance test for the connect / inventory / stop / scan / disconnect cycle. The real
+ * {@link RFIDHandler} and {@link ReaderViewModel} run against fake reader and scanner SDKs:
+ * connects go through discovery, event registration and scanner session setup on the reader
+ * executor, tag batches arrive as read events on an SDK-like thread and take the executor hop
+ * into {@link ReaderViewModel#handleTagdata}, and the direction engine is advanced like the
+ * model's tick does. Like the SDK with tag data not attached, the fake reader fires one read
+ * event per tag and the handler drains its read buffer in bulk. Each cycle also queues a TID
+ * read on the {@link TagAccessEngine}; the fakes have no SDK reader, so it fails and retries
+ * through the engine's scheduler.
+ *
+ * <p>Every sample interval the heap is measured after GC, along with live threads and the
+ * executor queue. The run fails when heap or thread counts grow, the executor queue or the
+ * access engine's scheduled wake-ups back up, readers or scanner sessions are left open, access
+ * ops never complete, or late-run median latency drifts past the early-run
+ * median by more than the allowed ratio. {@code ./gradlew test -Dsoak.cycles=<n>} runs longer.
+ */
+public class SoakTest {
+
+    private static final String[] OPERATIONS = {"connect", "inventory", "stop", "scan", "disconnect"};
+    private static final int CONNECT = 0;
+    private static final int INVENTORY = 1;
+    private static final int STOP = 2;
+    private static final int SCAN = 3;
+    private static final int DISCONNECT = 4;
+    private static final long TIMEOUT_MS = 5000;
+    private static final String READER_NAME = "RFD40+_SOAK";
+
+    private static final int TAGS = 2000;
+    private static final int BATCH_SIZE = 100;
+    private static final long BATCH_INTERVAL_MS = 2;
+    private static final int BATCHES_PER_INVENTORY = 5;
+
+    // Limits a run must stay within
+    private static final long MAX_HEAP_GROWTH_BYTES = 16L * 1024 * 1024;
+    private static final int MAX_THREAD_GROWTH = 2;
+    private static final int MAX_QUEUE_DEPTH = 64;
+    private static final int MAX_SCHEDULED_WAKEUPS = 1;
+    /** Allowed ratio of late-run to early-run median latency, per operation. */
+    private static final double MAX_LATENCY_DRIFT = 2.0;
+    /** Latencies below this are treated as noise and never fail the drift check. */
+    private static final long LATENCY_FLOOR_MICROS = 1000;
+
+    /** Reader SDK stand-in: each discovery returns a fresh reader, like a re-enumerated device. */
+    private static final class FakeReaderSdk implements ReaderSdk {
+        final Set<Readers.RFIDReaderEventHandler> attached = ConcurrentHashMap.newKeySet();
+        final AtomicInteger openReaders = new AtomicInteger();
+        final String[] population = new String[TAGS];
+        final Random random = new Random(1);
+
+        FakeReaderSdk() {
+            for (int i = 0; i < TAGS; i++) {
+                // SGTIN-96 header and a fixed company prefix so the GTIN index is exercised
+                population[i] = String.format("3074257BF7194E40%08X", i);
+            }
+        }
+
+        @Override
+        public void attach(Readers.RFIDReaderEventHandler handler) {
+            attached.add(handler);
+        }
+
+        @Override
+        public List<Reader> getAvailableReaders() {
+            List<Reader> readers = new ArrayList<>();
+            readers.add(new FakeReader(this));
+            return readers;
+        }
+
+        @Override
+        public void dispose() {
+            attached.clear();
+        }
+
+        synchronized TagData[] batch() {
+            TagData[] batch = new TagData[BATCH_SIZE];
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                TagData tag = new TagData();
+                tag.setTagID(population[random.nextInt(population.length)]);
+                tag.setPeakRSSI((short) (-40 - random.nextInt(40)));
+                tag.setAntennaID((short) (1 + random.nextInt(2)));
+                batch[i] = tag;
+            }
+            return batch;
+        }
+    }
+
+    /** Connecting starts an event thread that reports read events while inventory runs. */
+    private static final class FakeReader implements ReaderSdk.Reader {
+        private final FakeReaderSdk sdk;
+        private final ConcurrentLinkedQueue<TagData> readBuffer = new ConcurrentLinkedQueue<>();
+        private volatile boolean connected;
+        private volatile boolean inventory;
+        private volatile Thread eventThread;
+        private volatile RfidEventsListener listener;
+
+        FakeReader(FakeReaderSdk sdk) {
+            this.sdk = sdk;
+        }
+
+        @Override
+        public String getName() {
+            return READER_NAME;
+        }
+
+        @Override
+        public String getHostName() {
+            return READER_NAME;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public void connect() {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            Thread thread = new Thread(this::deliver, "FakeReaderEvents");
+            thread.setDaemon(true);
+            eventThread = thread;
+            connected = true;
+            sdk.openReaders.incrementAndGet();
+            thread.start();
+        }
+
+        @Override
+        public void disconnect() throws InvalidUsageException {
+            if (!connected) throw new InvalidUsageException("Not connected", "disconnect");
+            connected = false;
+            inventory = false;
+            Thread thread = eventThread;
+            eventThread = null;
+            if (thread != null) {
+                thread.interrupt();
+                try {
+                    thread.join(TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sdk.openReaders.decrementAndGet();
+        }
+
+        @Override
+        public void dispose() {
+            readBuffer.clear();
+        }
+
+        @Override
+        public void registerEvents(RfidEventsListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void removeEventsListener(RfidEventsListener listener) {
+            if (this.listener == listener) this.listener = null;
+        }
+
+        @Override
+        public void performInventory() throws InvalidUsageException {
+            if (!connected) throw new InvalidUsageException("Not connected", "perform");
+            inventory = true;
+        }
+
+        @Override
+        public void stopInventory() {
+            inventory = false;
+        }
+
+        @Override
+        public TagData[] getReadTags(int max) {
+            List<TagData> tags = new ArrayList<>();
+            TagData tag;
+            while (tags.size() < max && (tag = readBuffer.poll()) != null) {
+                tags.add(tag);
+            }
+            return tags.isEmpty() ? null : tags.toArray(new TagData[0]);
+        }
+
+        @Override
+        public RFIDReader getRFIDReader() {
+            return null;
+        }
+
+        private void deliver() {
+            Thread self = Thread.currentThread();
+            while (eventThread == self) {
+                try {
+                    Thread.sleep(BATCH_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                RfidEventsListener l = listener;
+                if (!inventory || l == null) continue;
+                // The reader buffers a burst of reads and then fires one event per tag, with no
+                // tag data attached: the first event drains the burst, the rest find it empty
+                TagData[] burst = sdk.batch();
+                readBuffer.addAll(Arrays.asList(burst));
+                for (int i = 0; i < burst.length; i++) {
+                    l.eventReadNotify(new RfidReadEvents(this));
+                }
+            }
+        }
+    }
+
+    /** Scanner SDK stand-in with the same list / session / trigger shape. */
+    private static final class FakeScannerSdk implements ScannerSdk {
+        final Set<Integer> sessions = ConcurrentHashMap.newKeySet();
+        final AtomicInteger barcodes = new AtomicInteger();
+        private volatile IDcsSdkApiDelegate delegate;
+
+        @Override
+        public void start(IDcsSdkApiDelegate delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public List<ScannerInfo> getAvailableScanners() {
+            List<ScannerInfo> scanners = new ArrayList<>();
+            scanners.add(new ScannerInfo(1, READER_NAME));
+            return scanners;
+        }
+
+        @Override
+        public DCSSDKDefs.DCSSDK_RESULT establishSession(int scannerId) {
+            sessions.add(scannerId);
+            IDcsSdkApiDelegate d = delegate;
+            if (d != null) d.dcssdkEventCommunicationSessionEstablished(new DCSScannerInfo());
+            return DCSSDKDefs.DCSSDK_RESULT.DCSSDK_RESULT_SUCCESS;
+        }
+
+        @Override
+        public DCSSDKDefs.DCSSDK_RESULT terminateSession(int scannerId) {
+            if (!sessions.remove(scannerId)) return DCSSDKDefs.DCSSDK_RESULT.DCSSDK_RESULT_FAILURE;
+            IDcsSdkApiDelegate d = delegate;
+            if (d != null) d.dcssdkEventCommunicationSessionTerminated(scannerId);
+            return DCSSDKDefs.DCSSDK_RESULT.DCSSDK_RESULT_SUCCESS;
+        }
+
+        @Override
+        public DCSSDKDefs.DCSSDK_RESULT executeCommand(DCSSDKDefs.DCSSDK_COMMAND_OPCODE opCode, String inXml,
+                                                      StringBuilder outXml, int scannerId) {
+            if (opCode != DCSSDKDefs.DCSSDK_COMMAND_OPCODE.DCSSDK_DEVICE_PULL_TRIGGER || !sessions.contains(scannerId)) {
+                return DCSSDKDefs.DCSSDK_RESULT.DCSSDK_RESULT_FAILURE;
+            }
+            IDcsSdkApiDelegate d = delegate;
+            // Barcodes arrive on an SDK thread, not the caller's
+            Thread thread = new Thread(() -> {
+                if (d != null) d.dcssdkEventBarcode(("SOAK" + barcodes.get()).getBytes(), 3, scannerId);
+                barcodes.incrementAndGet();
+            }, "FakeScannerEvent");
+            thread.setDaemon(true);
+            thread.start();
+            return DCSSDKDefs.DCSSDK_RESULT.DCSSDK_RESULT_SUCCESS;
+        }
+    }
+
+    /** Application whose preferences always return the defaults and drop writes. */
+    private static final class TestApplication extends Application {
+        private final SharedPreferences preferences;
+
+        TestApplication() {
+            ClassLoader loader = SharedPreferences.class.getClassLoader();
+            Object[] editor = new Object[1];
+            InvocationHandler defaults = (proxy, method, args) -> {
+                if (method.getReturnType() == SharedPreferences.Editor.class) return editor[0];
+                if (method.getName().startsWith("get") && args != null && args.length == 2) return args[1];
+                if (method.getReturnType() == boolean.class) return method.getName().equals("commit");
+                return null;
+            };
+            editor[0] = Proxy.newProxyInstance(loader, new Class<?>[]{SharedPreferences.Editor.class}, defaults);
+            preferences = (SharedPreferences) Proxy.newProxyInstance(loader, new Class<?>[]{SharedPreferences.class}, defaults);
+        }
+
+        @Override
+        public SharedPreferences getSharedPreferences(String name, int mode) {
+            return preferences;
+        }
+    }
+
+    private final FakeReaderSdk readerSdk = new FakeReaderSdk();
+    private final FakeScannerSdk scannerSdk = new FakeScannerSdk();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private RFIDHandler handler;
+    private ReaderViewModel viewModel;
+    private ReaderStatus status;
+    private TagAccessEngine accessEngine;
+    private int maxQueueDepth;
+    private int maxWakeups;
+
+    @Before
+    public void setUp() {
+        handler = new RFIDHandler(context -> readerSdk, context -> scannerSdk);
+        viewModel = new ReaderViewModel(new TestApplication(), handler);
+        viewModel.initReader();
+        viewModel.enablePortal(1, 2);
+        status = viewModel.getReaderStatus();
+        accessEngine = handler.getAccessEngine();
+        // Each op fails once, backs off and fails for good, well within a few cycles
+        accessEngine.setMaxRetries(1);
+    }
+
+    @After
+    public void tearDown() {
+        if (viewModel != null) viewModel.onCleared();
+    }
+
+    @Test
+    public void cyclesWithoutGrowthOrDrift() throws Exception {
+        int cycles = Integer.parseInt(System.getProperty("soak.cycles", "200"));
+        int sampleEvery = Math.max(1, cycles / 20);
+        long[][] latencies = new long[OPERATIONS.length][cycles];
+
+        // Warm up once so class loading and the first JIT pass do not count as growth
+        cycle(new long[OPERATIONS.length][1], 0);
+        long baselineHeap = heapAfterGc();
+        int baselineThreads = threads.getThreadCount();
+        long maxHeap = baselineHeap;
+        int maxThreads = baselineThreads;
+
+        for (int i = 0; i < cycles; i++) {
+            cycle(latencies, i);
+            if ((i + 1) % sampleEvery == 0) {
+                maxHeap = Math.max(maxHeap, heapAfterGc());
+                maxThreads = Math.max(maxThreads, threads.getThreadCount());
+            }
+        }
+        await("access ops", () -> {
+            TagAccessEngine.Stats stats = accessEngine.getStats();
+            return stats.succeeded + stats.failed == stats.submitted && !accessEngine.isDraining();
+        });
+        long finalHeap = heapAfterGc();
+        int finalThreads = threads.getThreadCount();
+
+        List<String> failures = new ArrayList<>();
+        if (finalHeap - baselineHeap > MAX_HEAP_GROWTH_BYTES) {
+            failures.add("heap grew " + (finalHeap - baselineHeap) / 1024 + " KB (max " + maxHeap / 1024 + " KB)");
+        }
+        if (finalThreads - baselineThreads > MAX_THREAD_GROWTH) {
+            failures.add("threads grew " + baselineThreads + " -> " + finalThreads + " (max " + maxThreads + ")");
+        }
+        if (maxQueueDepth > MAX_QUEUE_DEPTH) {
+            failures.add("executor queue reached " + maxQueueDepth);
+        }
+        if (maxWakeups > MAX_SCHEDULED_WAKEUPS || accessEngine.getScheduledWakeups() > 0) {
+            failures.add("access engine wake-ups reached " + maxWakeups + ", "
+                    + accessEngine.getScheduledWakeups() + " left after the run");
+        }
+        if (readerSdk.openReaders.get() > 0) {
+            failures.add(readerSdk.openReaders.get() + " readers left connected");
+        }
+        if (!scannerSdk.sessions.isEmpty()) {
+            failures.add(scannerSdk.sessions.size() + " scanner sessions left open");
+        }
+        if (readerSdk.attached.size() > 1) {
+            failures.add(readerSdk.attached.size() + " reader event handlers attached");
+        }
+        // Compare the first and last tenth of the run
+        int window = Math.max(1, cycles / 10);
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            long early = median(latencies[op], 0, window);
+            long late = median(latencies[op], cycles - window, cycles);
+            if (late > Math.max(early, LATENCY_FLOOR_MICROS) * MAX_LATENCY_DRIFT) {
+                failures.add(OPERATIONS[op] + " latency drifted " + early + " -> " + late + " us");
+            }
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    private void cycle(long[][] latencies, int index) throws Exception {
+        long t = System.nanoTime();
+        handler.toggleConnection();
+        await("connect", () -> status.getConnectionState() == ReaderStatus.ConnectionState.CONNECTED
+                && !scannerSdk.sessions.isEmpty());
+        latencies[CONNECT][index] = micros(t);
+
+        t = System.nanoTime();
+        long readsBefore = status.getTotalReads();
+        viewModel.startInventory();
+        await("inventory", () -> status.getTotalReads() - readsBefore >= (long) BATCHES_PER_INVENTORY * BATCH_SIZE);
+        latencies[INVENTORY][index] = micros(t);
+        assertTrue(viewModel.getTagIndex().size() > 0);
+        maxQueueDepth = Math.max(maxQueueDepth, handler.getExecutorBacklog());
+        viewModel.readTid(Collections.singletonList(readerSdk.population[index % TAGS]));
+        maxWakeups = Math.max(maxWakeups, accessEngine.getScheduledWakeups());
+
+        t = System.nanoTime();
+        viewModel.stopInventory();
+        // Batches queued before the stop still run on the executor
+        handler.afterQueuedTasks().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        latencies[STOP][index] = micros(t);
+        // What the model's direction tick does between batches
+        DirectionEngine engine = viewModel.getDirectionEngine();
+        assertNotNull(engine);
+        engine.advance(SystemClock.elapsedRealtime());
+
+        t = System.nanoTime();
+        int barcodes = scannerSdk.barcodes.get();
+        handler.scanCode();
+        await("barcode", () -> scannerSdk.barcodes.get() > barcodes);
+        latencies[SCAN][index] = micros(t);
+
+        t = System.nanoTime();
+        handler.toggleConnection();
+        await("disconnect", () -> status.getConnectionState() == ReaderStatus.ConnectionState.DISCONNECTED);
+        handler.afterQueuedTasks().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        latencies[DISCONNECT][index] = micros(t);
+    }
+
+    private static void await(String what, BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("No " + what + " within " + TIMEOUT_MS + " ms");
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+    private long heapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long micros(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000;
+    }
+
+    private static long median(long[] values, int from, int to) {
+        long[] copy = Arrays.copyOfRange(values, from, to);
+        Arrays.sort(copy);
+        return copy[copy.length / 2];
+    }
+}
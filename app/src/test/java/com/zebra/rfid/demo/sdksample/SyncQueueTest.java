@@ -0,0 +1,204 @@
+package com.zebra.rfid.demo.sdksample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+import com.zebra.rfid.api3.TagData;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+
+public class SyncQueueTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private SyncQueue queue;
+    private final List<String> bodies = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> keys = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void tearDown() {
+        if (queue != null) queue.shutdown();
+        if (server != null) server.stop(0);
+    }
+
+    /** Starts a server answering uploads with {@code statuses} in turn, then with the last one. */
+    private URL serve(int... statuses) throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try (InputStream in = new GZIPInputStream(exchange.getRequestBody())) {
+                bodies.add(read(in));
+            }
+            keys.add(exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+            int call = calls.getAndIncrement();
+            exchange.sendResponseHeaders(statuses[Math.min(call, statuses.length - 1)], -1);
+            exchange.close();
+        });
+        server.start();
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static TagData tag(String epc, int rssi) {
+        TagData tag = new TagData();
+        tag.setTagID(epc);
+        tag.setPeakRSSI((short) rssi);
+        tag.setAntennaID((short) 1);
+        return tag;
+    }
+
+    private static void await(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Timed out waiting for " + what);
+            Thread.sleep(10);
+        }
+    }
+
+    private static String[] files(File directory, String suffix) {
+        String[] names = directory.list((dir, name) -> name.endsWith(suffix));
+        return names == null ? new String[0] : names;
+    }
+
+    @Test
+    public void uploadsSealedBatchOnce() throws Exception {
+        File directory = new File(folder.getRoot(), "sync");
+        queue = new SyncQueue(directory, serve(200), "device");
+        queue.start();
+        queue.onTagBatch(new TagData[]{tag("E200A1", -50), tag("E200A2", -60), tag("E200A1", -40)});
+        queue.flush();
+        await("upload", () -> queue.getStats().batchesSent == 1);
+
+        assertEquals(1, bodies.size());
+        assertTrue(bodies.get(0).contains("E200A1"));
+        assertTrue(bodies.get(0).contains("E200A2"));
+        assertTrue(bodies.get(0).contains(keys.get(0)));
+        await("batch deleted", () -> files(directory, ".json.gz").length == 0);
+
+        // Unchanged tags are not sent again
+        queue.onTagBatch(new TagData[]{tag("E200A1", -41)});
+        queue.flush();
+        await("seal", () -> queue.getStats().pendingRecords == 0);
+        Thread.sleep(100);
+        assertEquals(1, bodies.size());
+    }
+
+    @Test
+    public void keepsRecordsWhenSealFails() throws Exception {
+        // A regular file where the directory should be makes every seal fail
+        File directory = folder.newFile("sync");
+        queue = new SyncQueue(directory, null, "device");
+        queue.onTagBatch(new TagData[]{tag("E200A1", -50), tag("E200A2", -60)});
+        queue.flush();
+        await("failed seal", () -> queue.getStats().failedAttempts == 1);
+        assertEquals(2, queue.getStats().pendingRecords);
+
+        queue.onTagBatch(new TagData[]{tag("E200A2", -40), tag("E200A3", -60)});
+        assertEquals(3, queue.getStats().pendingRecords);
+        assertEquals(0, files(folder.getRoot(), ".tmp").length);
+
+        assertTrue(directory.delete());
+        queue.flush();
+        await("sealed batch", () -> queue.getStats().queuedBatches == 1);
+        assertEquals(0, queue.getStats().pendingRecords);
+        assertEquals(0, files(directory, ".tmp").length);
+    }
+
+    @Test
+    public void retriesAfterServerError() throws Exception {
+        File directory = new File(folder.getRoot(), "sync");
+        queue = new SyncQueue(directory, serve(503, 200), "device");
+        queue.start();
+        queue.onTagBatch(new TagData[]{tag("E200A1", -50)});
+        queue.flush();
+        await("retried upload", () -> queue.getStats().batchesSent == 1);
+
+        assertEquals(2, bodies.size());
+        assertEquals(keys.get(0), keys.get(1));
+        assertEquals(1, queue.getStats().failedAttempts);
+    }
+
+    @Test
+    public void parksRejectedBatch() throws Exception {
+        File directory = new File(folder.getRoot(), "sync");
+        queue = new SyncQueue(directory, serve(400), "device");
+        queue.start();
+        queue.onTagBatch(new TagData[]{tag("E200A1", -50)});
+        queue.flush();
+        await("parked batch", () -> files(directory, ".failed").length == 1);
+        assertEquals(0, queue.getStats().queuedBatches);
+    }
+
+    @Test
+    public void dropsOldestBatchesBeyondSizeCap() throws Exception {
+        File directory = new File(folder.getRoot(), "sync");
+        queue = new SyncQueue(directory, null, "device");
+        queue.start();
+        queue.onTagBatch(new TagData[]{tag("E200A0", -50)});
+        queue.flush();
+        await("first batch", () -> queue.getStats().queuedBatches == 1);
+        long size = new File(directory, files(directory, ".json.gz")[0]).length();
+        queue.setMaxQueueBytes(3 * size + size / 2);
+
+        for (int i = 1; i < 5; i++) {
+            // Batch names order by creation time in milliseconds
+            Thread.sleep(2);
+            queue.onTagBatch(new TagData[]{tag("E200A" + i, -50)});
+            queue.flush();
+            int expected = i;
+            await("batch " + i, () -> queue.getStats().queuedBatches + queue.getStats().droppedBatches == expected + 1);
+        }
+
+        assertEquals(3, queue.getStats().queuedBatches);
+        assertEquals(2, queue.getStats().droppedBatches);
+        long total = 0;
+        for (String name : files(directory, ".json.gz")) {
+            total += new File(directory, name).length();
+        }
+        assertTrue(total <= 3 * size + size / 2);
+    }
+
+    @Test
+    public void dropsExpiredBatchesOnStart() throws Exception {
+        File directory = folder.newFolder("sync");
+        File expired = new File(directory, "1000_1000_key.json.gz");
+        assertTrue(expired.createNewFile());
+        queue = new SyncQueue(directory, null, "device");
+        queue.start();
+        await("expired batch dropped", () -> queue.getStats().droppedBatches == 1);
+        assertFalse(expired.exists());
+        assertEquals(0, queue.getStats().queuedBatches);
+    }
+}
@@ -0,0 +1,91 @@
+package com.zebra.rfid.demo.sdksample;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.zebra.rfid.api3.MEMORY_BANK;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+public class TagAccessEngineTest {
+
+    private static final long TIMEOUT_MS = 5000;
+    private static final String EPC = "3074257BF7194E4000001A85";
+
+    private TagAccessEngine engine;
+    private final List<TagAccessEngine.AccessResult> results = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        // Never connected, so every round fails to start
+        engine = new TagAccessEngine(new RFIDHandler());
+        engine.setResultListener(results::add);
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void idleDrainsScheduleNoWakeups() {
+        for (int i = 0; i < 5; i++) {
+            engine.submit(Collections.emptyList());
+            await("idle drain", () -> !engine.isDraining());
+            assertEquals(0, engine.getScheduledWakeups());
+        }
+    }
+
+    @Test
+    public void failedOpLeavesNoWakeups() {
+        engine.setMaxRetries(1);
+        engine.submit(TagAccessEngine.AccessOp.read(EPC, MEMORY_BANK.MEMORY_BANK_TID, 0, 6, 0));
+        await("result", () -> results.size() == 1);
+        await("idle drain", () -> !engine.isDraining());
+
+        TagAccessEngine.AccessResult result = results.get(0);
+        assertFalse(result.success);
+        assertEquals(RFIDHandler.DISCONNECTED, result.status);
+        assertEquals(2, result.attempts);
+        // The first attempt's backoff is waiting time, not time on the reader
+        assertTrue(result.queueMs >= 100);
+        assertTrue(result.latencyMs < result.queueMs);
+        assertEquals(0, engine.getScheduledWakeups());
+    }
+
+    @Test
+    public void backingOffOpsShareOneWakeup() {
+        engine.setMaxRetries(2);
+        List<TagAccessEngine.AccessOp> ops = new ArrayList<>();
+        for (int offset = 0; offset < 4; offset++) {
+            // Different offsets make separate rounds, each failing and backing off on its own
+            ops.add(TagAccessEngine.AccessOp.read(EPC, MEMORY_BANK.MEMORY_BANK_TID, offset, 2, 0));
+        }
+        engine.submit(ops);
+        await("results", () -> {
+            assertTrue(engine.getScheduledWakeups() <= 1);
+            return results.size() == ops.size();
+        });
+        await("idle drain", () -> !engine.isDraining());
+        assertEquals(0, engine.getScheduledWakeups());
+    }
+
+    private static void await(String what, BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("No " + what + " within " + TIMEOUT_MS + " ms");
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.zebra.rfid.demo.sdksample;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+
+import com.zebra.rfid.api3.TagData;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+public class TraceReplayerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Counts what a replay delivers. */
+    private static final class CountingSink implements RFIDHandler.ResponseHandlerInterface {
+        final List<TagData> tags = new ArrayList<>();
+        final HashSet<String> unique = new HashSet<>();
+        final List<Boolean> triggers = new ArrayList<>();
+        final List<String> barcodes = new ArrayList<>();
+
+        @Override
+        public void handleTagdata(TagData[] tagData) {
+            for (TagData tag : tagData) {
+                tags.add(tag);
+                unique.add(tag.getTagID());
+            }
+        }
+
+        @Override
+        public void handleTriggerPress(boolean pressed) {
+            triggers.add(pressed);
+        }
+
+        @Override
+        public void barcodeData(String val) {
+            barcodes.add(val);
+        }
+
+        @Override
+        public void sendToast(String val) {
+        }
+    }
+
+    private static TagData tag(String epc, int rssi, int antenna) {
+        TagData tag = new TagData();
+        tag.setTagID(epc);
+        tag.setPeakRSSI((short) rssi);
+        tag.setAntennaID((short) antenna);
+        return tag;
+    }
+
+    @Test
+    public void replaysRecordedEvents() throws IOException {
+        File file = folder.newFile("events.rftr");
+        TraceRecorder recorder = new TraceRecorder();
+        recorder.start(file);
+        recorder.recordTrigger(true);
+        recorder.recordReadBatch(new TagData[]{tag("3074257BF7194E4000001A85", -52, 1), tag("E2801160", -70, 2)});
+        recorder.recordReadBatch(new TagData[]{tag("ABC", -40, 3)});
+        recorder.recordBarcode("0123456789".getBytes(StandardCharsets.UTF_8), 3);
+        recorder.recordTrigger(false);
+        recorder.recordDisconnect();
+        recorder.stop();
+
+        CountingSink sink = new CountingSink();
+        TraceReplayer.Report report = new TraceReplayer(sink, null).replay(file, TraceReplayer.MAX_SPEED);
+
+        assertEquals(6, report.records);
+        assertEquals(2, report.readBatches);
+        assertEquals(3, report.tags);
+        assertEquals(1, report.disconnects);
+        assertEquals(3, sink.tags.size());
+        assertEquals("3074257BF7194E4000001A85", sink.tags.get(0).getTagID());
+        assertEquals(-52, sink.tags.get(0).getPeakRSSI());
+        assertEquals(2, sink.tags.get(1).getAntennaID());
+        // Odd nibble counts survive packing
+        assertEquals("ABC", sink.tags.get(2).getTagID());
+        assertArrayEquals(new Boolean[]{true, false}, sink.triggers.toArray(new Boolean[0]));
+        assertEquals("0123456789", sink.barcodes.get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("not-a-trace.rftr");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("not a trace".getBytes(StandardCharsets.UTF_8));
+        }
+        new TraceReplayer(new CountingSink(), null).replay(file, TraceReplayer.MAX_SPEED);
+    }
+
+    @Test
+    public void splitsBatchesAboveTheRecordLimit() throws IOException {
+        File file = folder.newFile("large.rftr");
+        TagData[] tags = new TagData[TraceRecorder.MAX_BATCH_TAGS + 10];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = tag(String.format("3074257BF7194E40%08X", i), -50, 1);
+        }
+        TraceRecorder recorder = new TraceRecorder();
+        recorder.start(file);
+        recorder.recordReadBatch(tags);
+        recorder.stop();
+
+        CountingSink sink = new CountingSink();
+        TraceReplayer.Report report = new TraceReplayer(sink, null).replay(file, TraceReplayer.MAX_SPEED);
+
+        assertEquals(2, report.readBatches);
+        assertEquals(tags.length, sink.unique.size());
+    }
+
+    @Test
+    public void rejectsCorruptLengths() throws IOException {
+        // A read batch claiming 2^31 tags and a barcode claiming 2^31 bytes
+        byte[] hugeLength = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08};
+        for (int type : new int[]{TraceRecorder.TYPE_READ_BATCH, TraceRecorder.TYPE_BARCODE}) {
+            File file = folder.newFile("corrupt-" + type + ".rftr");
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+                out.writeInt(TraceRecorder.MAGIC);
+                out.writeByte(TraceRecorder.VERSION);
+                out.writeByte(type);
+                out.writeByte(0); // timestamp
+                if (type == TraceRecorder.TYPE_BARCODE) out.writeByte(4); // symbology
+                out.write(hugeLength);
+            }
+            try {
+                new TraceReplayer(new CountingSink(), null).replay(file, TraceReplayer.MAX_SPEED);
+                fail("Corrupt trace replayed");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupt trace"));
+            }
+        }
+    }
+
+    /**
+     * Replays a field trace given with {@code -Dtrace=<file>} and prints throughput and latency,
+     * for use as a performance regression input. Skipped when no trace is given.
+     */
+    @Test
+    public void replaysTraceFromCommandLine() throws IOException {
+        String path = System.getProperty("trace", "");
+        assumeFalse(path.isEmpty());
+        double speed = Double.parseDouble(System.getProperty("trace.speed", "0"));
+        CountingSink sink = new CountingSink();
+        TraceReplayer.Report report = new TraceReplayer(sink, null).replay(new File(path), speed);
+        System.out.println(report);
+        System.out.println("Unique tags: " + sink.unique.size());
+    }
+}